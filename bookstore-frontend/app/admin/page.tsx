@@ -4,22 +4,85 @@ import { useEffect, useState } from 'react';
 import { useRouter } from 'next/navigation';
 import { useAuth } from '@/contexts/AuthContext';
 import { apiClient } from '@/lib/api';
-import { AdminDashboardResponse, LowStockBook } from '@/types';
+import { AdminDashboardDelta, AdminDashboardResponse, LowStockAlert, LowStockBook } from '@/types';
 import LoadingSpinner from '@/components/LoadingSpinner';
 import Button from '@/components/Button';
 
+const STREAM_RETRY_MS = 5000;
+
+// Deltas carry current values, so applying one on top of a newer snapshot is harmless
+function applyDelta(dashboard: AdminDashboardResponse, delta: AdminDashboardDelta): AdminDashboardResponse {
+  const changed = new Map(delta.orders.map((order) => [order.orderNumber, order] as const));
+  const recentOrders = [
+    ...dashboard.recentOrders.map((order) => changed.get(order.orderNumber) ?? order),
+    ...delta.orders.filter((order) => !dashboard.recentOrders.some((o) => o.orderNumber === order.orderNumber)),
+  ]
+    .sort((a, b) => new Date(b.createdAt).getTime() - new Date(a.createdAt).getTime())
+    .slice(0, dashboard.recentOrders.length || 10);
+
+  const latestStock = new Map(
+    delta.stockChanges.filter((change) => change.newStock != null).map((change) => [change.bookId, change.newStock] as const)
+  );
+  const lowStockBooks = dashboard.lowStockBooks
+    .map((book) => ({ ...book, currentStock: latestStock.get(book.bookId) ?? book.currentStock }))
+    .filter((book) => book.currentStock > 0 && book.currentStock <= book.threshold);
+
+  return {
+    ...dashboard,
+    stats: delta.stats ?? dashboard.stats,
+    recentOrders,
+    lowStockBooks,
+    stockHistory: [...[...delta.stockChanges].reverse(), ...dashboard.stockHistory].slice(0, dashboard.stockHistory.length || 20),
+  };
+}
+
 export default function AdminDashboardPage() {
   const router = useRouter();
   const { isAuthenticated, isAdmin } = useAuth();
   const [dashboard, setDashboard] = useState<AdminDashboardResponse | null>(null);
   const [loading, setLoading] = useState(true);
+  const [alerts, setAlerts] = useState<LowStockAlert[]>([]);
 
   useEffect(() => {
     if (!isAuthenticated || !isAdmin) {
       router.push('/');
       return;
     }
+
+    // Stream first, then the snapshot, so no change falls between the two
+    const controller = new AbortController();
+    let retry: ReturnType<typeof setTimeout> | undefined;
+    const follow = () => {
+      apiClient
+        .streamAdminDashboard((event) => {
+          if (event.type === 'dashboard-delta') {
+            setDashboard((current) => (current ? applyDelta(current, event.data) : current));
+          } else {
+            setAlerts((current) => [event.data, ...current].slice(0, 5));
+          }
+        }, controller.signal)
+        .catch((error) => {
+          if (!controller.signal.aborted) {
+            console.error('Dashboard stream failed:', error);
+          }
+        })
+        .finally(() => {
+          if (!controller.signal.aborted) {
+            // Reload the snapshot on reconnect; deltas sent while disconnected are gone
+            retry = setTimeout(() => {
+              follow();
+              loadDashboard();
+            }, STREAM_RETRY_MS);
+          }
+        });
+    };
+    follow();
     loadDashboard();
+
+    return () => {
+      controller.abort();
+      clearTimeout(retry);
+    };
   }, [isAuthenticated, isAdmin, router]);
 
   const loadDashboard = async () => {
@@ -54,47 +117,73 @@ export default function AdminDashboardPage() {
   }
 
   const stats = dashboard.stats;
+  const delayedSections = Object.entries(dashboard.sections ?? {})
+    .filter(([, section]) => section.state !== 'FRESH');
 
   return (
     <div className="max-w-7xl mx-auto px-4 sm:px-6 lg:px-8 py-8">
       <h1 className="text-3xl font-bold text-gray-900 mb-8">Admin Dashboard</h1>
 
+      {delayedSections.length > 0 && (
+        <div className="bg-yellow-50 border border-yellow-200 text-yellow-800 rounded-lg p-4 mb-8">
+          Some sections are delayed:{' '}
+          {delayedSections
+            .map(([name, section]) =>
+              section.asOf
+                ? `${name} (as of ${new Date(section.asOf).toLocaleTimeString()})`
+                : `${name} (unavailable)`
+            )
+            .join(', ')}
+        </div>
+      )}
+
+      {alerts.length > 0 && (
+        <div className="bg-red-50 border border-red-200 text-red-800 rounded-lg p-4 mb-8 space-y-1">
+          {alerts.map((alert) => (
+            <p key={`${alert.bookId}-${alert.level}-${alert.alertedAt}`}>
+              {alert.level === 'OUT_OF_STOCK' ? 'Out of stock' : 'Low stock'}: {alert.title} ({alert.stock} left,{' '}
+              {new Date(alert.alertedAt).toLocaleTimeString()})
+            </p>
+          ))}
+        </div>
+      )}
+
       {/* Stats Grid */}
       <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-4 gap-6 mb-8">
         <div className="bg-white rounded-lg shadow-md p-6">
           <h3 className="text-sm font-medium text-gray-500 mb-2">Total Books</h3>
-          <p className="text-3xl font-bold text-gray-900">{stats.totalBooks}</p>
+          <p className="text-3xl font-bold text-gray-900">{stats?.totalBooks ?? '—'}</p>
         </div>
         <div className="bg-white rounded-lg shadow-md p-6">
           <h3 className="text-sm font-medium text-gray-500 mb-2">Total Orders</h3>
-          <p className="text-3xl font-bold text-gray-900">{stats.totalOrders}</p>
+          <p className="text-3xl font-bold text-gray-900">{stats?.totalOrders ?? '—'}</p>
         </div>
         <div className="bg-white rounded-lg shadow-md p-6">
           <h3 className="text-sm font-medium text-gray-500 mb-2">Total Users</h3>
-          <p className="text-3xl font-bold text-gray-900">{stats.totalUsers}</p>
+          <p className="text-3xl font-bold text-gray-900">{stats?.totalUsers ?? '—'}</p>
         </div>
         <div className="bg-white rounded-lg shadow-md p-6">
           <h3 className="text-sm font-medium text-gray-500 mb-2">Total Revenue</h3>
-          <p className="text-3xl font-bold text-green-600">${stats.totalRevenue.toFixed(2)}</p>
+          <p className="text-3xl font-bold text-green-600">{stats ? `$${stats.totalRevenue.toFixed(2)}` : '—'}</p>
         </div>
       </div>
 
       <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-4 gap-6 mb-8">
         <div className="bg-white rounded-lg shadow-md p-6">
           <h3 className="text-sm font-medium text-gray-500 mb-2">Out of Stock</h3>
-          <p className="text-3xl font-bold text-red-600">{stats.outOfStockBooks}</p>
+          <p className="text-3xl font-bold text-red-600">{stats?.outOfStockBooks ?? '—'}</p>
         </div>
         <div className="bg-white rounded-lg shadow-md p-6">
           <h3 className="text-sm font-medium text-gray-500 mb-2">Pending Orders</h3>
-          <p className="text-3xl font-bold text-yellow-600">{stats.pendingOrders}</p>
+          <p className="text-3xl font-bold text-yellow-600">{stats?.pendingOrders ?? '—'}</p>
         </div>
         <div className="bg-white rounded-lg shadow-md p-6">
           <h3 className="text-sm font-medium text-gray-500 mb-2">Completed Orders</h3>
-          <p className="text-3xl font-bold text-green-600">{stats.completedOrders}</p>
+          <p className="text-3xl font-bold text-green-600">{stats?.completedOrders ?? '—'}</p>
         </div>
         <div className="bg-white rounded-lg shadow-md p-6">
           <h3 className="text-sm font-medium text-gray-500 mb-2">Cancelled Orders</h3>
-          <p className="text-3xl font-bold text-red-600">{stats.cancelledOrders}</p>
+          <p className="text-3xl font-bold text-red-600">{stats?.cancelledOrders ?? '—'}</p>
         </div>
       </div>
 
@@ -4,14 +4,16 @@ import { useEffect, useState } from 'react';
 import { useRouter } from 'next/navigation';
 import { useAuth } from '@/contexts/AuthContext';
 import { apiClient } from '@/lib/api';
-import { OrderResponse, OrderStatus } from '@/types';
+import { OrderSummary, OrderStatus } from '@/types';
 import LoadingSpinner from '@/components/LoadingSpinner';
 
 export default function OrdersPage() {
   const router = useRouter();
   const { isAuthenticated } = useAuth();
-  const [orders, setOrders] = useState<OrderResponse[]>([]);
+  const [orders, setOrders] = useState<OrderSummary[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   useEffect(() => {
     if (!isAuthenticated) {
@@ -23,8 +25,9 @@ export default function OrdersPage() {
 
   const loadOrders = async () => {
     try {
-      const ordersData = await apiClient.getOrders();
-      setOrders(ordersData);
+      const page = await apiClient.getOrders();
+      setOrders(page.orders);
+      setNextCursor(page.nextCursor);
     } catch (error) {
       console.error('Failed to load orders:', error);
     } finally {
@@ -32,6 +35,20 @@ export default function OrdersPage() {
     }
   };
 
+  const loadMore = async () => {
+    if (!nextCursor) return;
+    setLoadingMore(true);
+    try {
+      const page = await apiClient.getOrders(nextCursor);
+      setOrders((current) => [...current, ...page.orders]);
+      setNextCursor(page.nextCursor);
+    } catch (error) {
+      console.error('Failed to load more orders:', error);
+    } finally {
+      setLoadingMore(false);
+    }
+  };
+
   const getStatusColor = (status: OrderStatus) => {
     const colors: Record<OrderStatus, string> = {
       [OrderStatus.PENDING]: 'bg-yellow-100 text-yellow-800',
@@ -87,16 +104,9 @@ export default function OrdersPage() {
               </div>
 
               <div className="border-t pt-4">
-                <div className="space-y-2 mb-4">
-                  {order.items.map((item, index) => (
-                    <div key={index} className="flex justify-between text-sm">
-                      <span>
-                        {item.bookTitle} x {item.quantity}
-                      </span>
-                      <span className="font-medium">${item.subtotal.toFixed(2)}</span>
-                    </div>
-                  ))}
-                </div>
+                <p className="text-sm text-gray-600 mb-4">
+                  {order.itemCount} {order.itemCount === 1 ? 'item' : 'items'}
+                </p>
                 <div className="flex justify-between items-center pt-4 border-t">
                   <span className="text-lg font-bold">Total: ${order.totalAmount.toFixed(2)}</span>
                   <button
@@ -109,6 +119,17 @@ export default function OrdersPage() {
               </div>
             </div>
           ))}
+          {nextCursor && (
+            <div className="flex justify-center pt-4">
+              <button
+                onClick={loadMore}
+                disabled={loadingMore}
+                className="text-blue-600 hover:text-blue-800 font-medium disabled:text-gray-400"
+              >
+                {loadingMore ? 'Loading...' : 'Load more orders'}
+              </button>
+            </div>
+          )}
         </div>
       )}
     </div>
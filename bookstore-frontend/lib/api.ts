@@ -8,9 +8,11 @@ import {
   CartResponse,
   EditCartRequest,
   OrderResponse,
+  OrderHistoryResponse,
   PresignedUrlRequest,
   PresignedUrlResponse,
   AdminDashboardResponse,
+  AdminDashboardEvent,
   LowStockBook,
   ISBNCheckResponse,
   PageResponse,
@@ -172,8 +174,10 @@ class ApiClient {
     return response.data;
   }
 
-  async getOrders(): Promise<OrderResponse[]> {
-    const response = await this.client.get<OrderResponse[]>('/api/orders');
+  async getOrders(cursor?: string, limit = 20): Promise<OrderHistoryResponse> {
+    const response = await this.client.get<OrderHistoryResponse>('/api/orders', {
+      params: { cursor, limit },
+    });
     return response.data;
   }
 
@@ -188,6 +192,51 @@ class ApiClient {
     return response.data;
   }
 
+  /**
+   * Follows the live dashboard stream until signal aborts; resolves when the stream ends
+   * Uses fetch rather than EventSource so the bearer token can be sent
+   */
+  async streamAdminDashboard(onEvent: (event: AdminDashboardEvent) => void, signal: AbortSignal): Promise<void> {
+    const token = typeof window !== 'undefined' ? localStorage.getItem('token') : null;
+    const response = await fetch(`${API_BASE_URL}/api/admin/dashboard/events`, {
+      headers: {
+        Accept: 'text/event-stream',
+        ...(token ? { Authorization: `Bearer ${token}` } : {}),
+      },
+      signal,
+    });
+    if (!response.ok || !response.body) {
+      throw new Error(`Dashboard stream failed with status ${response.status}`);
+    }
+
+    const reader = response.body.pipeThrough(new TextDecoderStream()).getReader();
+    let buffer = '';
+    for (;;) {
+      const { value, done } = await reader.read();
+      if (done) {
+        return;
+      }
+      buffer += value;
+      let end;
+      while ((end = buffer.indexOf('\n\n')) !== -1) {
+        const frame = buffer.slice(0, end);
+        buffer = buffer.slice(end + 2);
+        let type = 'message';
+        const data: string[] = [];
+        for (const line of frame.split('\n')) {
+          if (line.startsWith('event:')) {
+            type = line.slice(6).trim();
+          } else if (line.startsWith('data:')) {
+            data.push(line.slice(5).replace(/^ /, ''));
+          }
+        }
+        if ((type === 'dashboard-delta' || type === 'low-stock-alert') && data.length > 0) {
+          onEvent({ type, data: JSON.parse(data.join('\n')) } as AdminDashboardEvent);
+        }
+      }
+    }
+  }
+
   async getLowStockBooks(threshold = 10, limit = 20): Promise<LowStockBook[]> {
     const response = await this.client.get<LowStockBook[]>('/api/admin/dashboard/low-stock', {
       params: { threshold, limit },
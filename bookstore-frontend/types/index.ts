@@ -109,9 +109,12 @@ export interface CartResponse {
   cartId: number;
   userId: number;
   isActive: boolean;
+  version: number;
   items: CartItem[];
   totalAmount: number;
   totalItems: number;
+  merged?: boolean;
+  conflictingBookIds?: number[];
 }
 
 export interface EditCartRequest {
@@ -119,6 +122,12 @@ export interface EditCartRequest {
     bookId: number;
     quantity: number;
   }[];
+  cartVersion?: number;
+  // Items of the cart at cartVersion, so a stale edit can be merged
+  baseItems?: {
+    bookId: number;
+    quantity: number;
+  }[];
 }
 
 export interface OrderItem {
@@ -138,6 +147,20 @@ export interface OrderResponse {
   createdAt: string;
 }
 
+export interface OrderSummary {
+  orderId: number;
+  orderNumber: string;
+  status: OrderStatus;
+  totalAmount: number;
+  itemCount: number;
+  createdAt: string;
+}
+
+export interface OrderHistoryResponse {
+  orders: OrderSummary[];
+  nextCursor: string | null;
+}
+
 export interface AdminDashboardStats {
   totalBooks: number;
   totalOrders: number;
@@ -175,13 +198,44 @@ export interface StockHistory {
   updatedAt: string;
 }
 
+export type DashboardSectionState = 'FRESH' | 'STALE' | 'UNAVAILABLE';
+
+export interface DashboardSectionStatus {
+  state: DashboardSectionState;
+  asOf: string | null;
+}
+
 export interface AdminDashboardResponse {
-  stats: AdminDashboardStats;
+  stats: AdminDashboardStats | null;
   lowStockBooks: LowStockBook[];
   recentOrders: RecentOrder[];
   stockHistory: StockHistory[];
+  sections?: Record<string, DashboardSectionStatus>;
+}
+
+// Pushed on GET /api/admin/dashboard/events as 'dashboard-delta'
+export interface AdminDashboardDelta {
+  stats: AdminDashboardStats | null;
+  orders: RecentOrder[];
+  stockChanges: StockHistory[];
+  asOf: string;
+}
+
+// Pushed as 'low-stock-alert'
+export interface LowStockAlert {
+  bookId: number;
+  title: string;
+  level: 'LOW' | 'OUT_OF_STOCK';
+  previousStock: number;
+  stock: number;
+  threshold: number;
+  alertedAt: string;
 }
 
+export type AdminDashboardEvent =
+  | { type: 'dashboard-delta'; data: AdminDashboardDelta }
+  | { type: 'low-stock-alert'; data: LowStockAlert };
+
 export interface PageResponse<T> {
   content: T[];
   totalElements: number;
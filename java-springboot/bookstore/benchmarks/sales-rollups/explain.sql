@@ -0,0 +1,91 @@
+-- EXPLAIN ANALYZE of the sales report queries on the seeded fixture (see README.md)
+--
+-- Compares the reports as SalesReportService runs them (rollup tables only) with the same
+-- answers computed from orders / order_items, and times one day's rebuild by SalesRollupJob.
+-- Report ranges end today and span range_days (default 30).
+--
+--   psql -v schema=bookstore -v range_days=30 -f explain.sql
+
+\set ON_ERROR_STOP on
+\if :{?schema}
+\else
+    \set schema bookstore
+\endif
+\if :{?range_days}
+\else
+    \set range_days 30
+\endif
+
+SET search_path = :"schema";
+SELECT current_date - :range_days AS range_from, current_date AS range_to \gset
+
+\echo '== Top sellers by revenue: rollup (SalesReportService.getTopSellers)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT s.book_id, b.title, b.genre, s.units, s.revenue, s.orders
+FROM (
+    SELECT book_id, SUM(units) AS units, SUM(revenue) AS revenue, SUM(orders) AS orders
+    FROM daily_book_sales
+    WHERE sale_date >= :'range_from' AND sale_date <= :'range_to'
+    GROUP BY book_id
+    ORDER BY revenue DESC, book_id
+    LIMIT 10
+) s
+JOIN books b ON b.id = s.book_id
+ORDER BY s.revenue DESC, s.book_id;
+
+\echo '== Top sellers by revenue: from order_items'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT oi.book_id, b.title, b.genre, SUM(oi.quantity) AS units, SUM(oi.subtotal) AS revenue,
+       count(DISTINCT oi.order_id) AS orders
+FROM orders o
+JOIN order_items oi ON oi.order_id = o.id
+JOIN books b ON b.id = oi.book_id
+WHERE o.created_at >= :'range_from' AND o.created_at < CAST(:'range_to' AS date) + 1
+  AND oi.created_at >= :'range_from'
+  AND o.status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED')
+GROUP BY oi.book_id, b.title, b.genre
+ORDER BY revenue DESC, oi.book_id
+LIMIT 10;
+
+\echo '== Revenue by week: rollup (SalesReportService.getRevenue)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT CAST(date_trunc('week', CAST(sale_date AS timestamp)) AS date) AS period_start, SUM(units) AS units, SUM(revenue) AS revenue
+FROM daily_genre_sales
+WHERE sale_date >= :'range_from' AND sale_date <= :'range_to'
+GROUP BY 1
+ORDER BY 1;
+
+\echo '== Revenue by week: from order_items'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT CAST(date_trunc('week', o.created_at) AS date) AS period_start, SUM(oi.quantity) AS units, SUM(oi.subtotal) AS revenue
+FROM orders o
+JOIN order_items oi ON oi.order_id = o.id
+WHERE o.created_at >= :'range_from' AND o.created_at < CAST(:'range_to' AS date) + 1
+  AND oi.created_at >= :'range_from'
+  AND o.status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED')
+GROUP BY 1
+ORDER BY 1;
+
+\echo '== Revenue by genre: rollup (SalesReportService.getRevenueByGenre)'
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT genre, SUM(units) AS units, SUM(revenue) AS revenue
+FROM daily_genre_sales
+WHERE sale_date >= :'range_from' AND sale_date <= :'range_to'
+GROUP BY genre
+ORDER BY revenue DESC;
+
+\echo '== Rebuild of yesterday (SalesRollupJob.rebuildDay), rolled back'
+SELECT current_date - 1 AS day \gset
+BEGIN;
+EXPLAIN (ANALYZE, BUFFERS)
+DELETE FROM daily_book_sales WHERE sale_date = :'day';
+EXPLAIN (ANALYZE, BUFFERS)
+INSERT INTO daily_book_sales (sale_date, book_id, units, revenue, orders)
+SELECT CAST(:'day' AS date), oi.book_id, SUM(oi.quantity), SUM(oi.subtotal), count(DISTINCT oi.order_id)
+FROM orders o
+JOIN order_items oi ON oi.order_id = o.id
+WHERE o.created_at >= :'day' AND o.created_at < CAST(:'day' AS date) + 1
+  AND oi.created_at >= :'day'
+  AND o.status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED')
+GROUP BY oi.book_id;
+ROLLBACK;
@@ -0,0 +1,28 @@
+#!/bin/bash
+# Seeds the sales rollup fixture (unless --skip-seed) and runs the EXPLAIN ANALYZE script.
+# Connection settings come from the usual libpq variables (PGHOST, PGPORT, PGDATABASE,
+# PGUSER, PGPASSWORD); SCHEMA, SCALE_ORDERS, ITEMS_PER_ORDER, BOOKS, DAYS and RANGE_DAYS
+# override the fixture size. Output goes to stdout and to results/explain-<timestamp>.txt.
+
+set -euo pipefail
+
+cd "$(dirname "$0")"
+
+SCHEMA=${SCHEMA:-bookstore}
+
+if [ "${1:-}" != "--skip-seed" ]; then
+  echo "=== Seeding fixture (schema $SCHEMA) ==="
+  psql -X -q \
+    -v schema="$SCHEMA" \
+    -v scale_orders="${SCALE_ORDERS:-2000000}" \
+    -v items_per_order="${ITEMS_PER_ORDER:-5}" \
+    -v books="${BOOKS:-20000}" \
+    -v days="${DAYS:-365}" \
+    -f seed.sql
+fi
+
+mkdir -p results
+OUT="results/explain-$(date +%Y%m%d-%H%M%S).txt"
+echo "=== EXPLAIN ANALYZE (range ${RANGE_DAYS:-30} days) ==="
+psql -X -v schema="$SCHEMA" -v range_days="${RANGE_DAYS:-30}" -f explain.sql | tee "$OUT"
+echo "Saved to $OUT"
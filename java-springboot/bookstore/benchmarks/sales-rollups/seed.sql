@@ -0,0 +1,126 @@
+-- Seeded fixture for the sales rollup benchmark (see README.md)
+--
+-- Run against a database whose schema the application has already created (start it once),
+-- in the application's schema. Everything is generated with generate_series from a fixed
+-- random seed, so the same parameters always produce the same rows.
+--
+--   psql -v schema=bookstore -v scale_orders=2000000 -v items_per_order=5 -v books=20000 -v days=365 -f seed.sql
+--
+-- Defaults: 2M orders x ~5 items = ~10M order_items over the last 365 days.
+
+\set ON_ERROR_STOP on
+\if :{?scale_orders}
+\else
+    \set scale_orders 2000000
+\endif
+\if :{?items_per_order}
+\else
+    \set items_per_order 5
+\endif
+\if :{?books}
+\else
+    \set books 20000
+\endif
+\if :{?users}
+\else
+    \set users 100000
+\endif
+\if :{?days}
+\else
+    \set days 365
+\endif
+\if :{?schema}
+\else
+    \set schema bookstore
+\endif
+
+SET search_path = :"schema";
+SELECT setseed(0.48);
+
+-- Removes earlier benchmark rows so the fixture can be re-seeded in place; the rollups are
+-- derived data and are rebuilt below from all orders
+DELETE FROM daily_genre_sales;
+DELETE FROM daily_book_sales;
+DELETE FROM rollup_watermarks WHERE name = 'sales';
+DELETE FROM order_items WHERE order_id IN (SELECT id FROM orders WHERE order_number LIKE 'BENCH-%');
+DELETE FROM orders WHERE order_number LIKE 'BENCH-%';
+DELETE FROM books WHERE isbn LIKE 'BENCH-%';
+DELETE FROM authors WHERE name LIKE 'Bench Author %';
+DELETE FROM users WHERE email LIKE 'bench-%@example.com';
+
+INSERT INTO authors (name, created_at)
+SELECT 'Bench Author ' || g, now()
+FROM generate_series(1, greatest(:books / 10, 1)) g;
+
+INSERT INTO books (title, price, stock, author_id, genre, created_at, updated_at, s3_path, isbn, version)
+SELECT 'Bench Book ' || g,
+       round((5 + random() * 45)::numeric, 2),
+       (random() * 500)::int,
+       a.min_id + (g % a.n),
+       (ARRAY['FICTION', 'NON_FICTION', 'SCIENCE', 'HISTORY', 'TECHNOLOGY', 'OTHER'])[1 + (g % 6)],
+       now(), now(), 'bench/' || g, 'BENCH-' || g, 0
+FROM generate_series(1, :books) g,
+     (SELECT min(id) AS min_id, count(*) AS n FROM authors WHERE name LIKE 'Bench Author %') a;
+
+INSERT INTO users (name, email, password, role, created_at)
+SELECT 'Bench User ' || g, 'bench-' || g || '@example.com', 'x', 'CUSTOMER', now()
+FROM generate_series(1, :users) g;
+
+-- Statuses roughly as a live store has them: mostly delivered, some in flight, ~8% cancelled
+INSERT INTO orders (order_number, user_id, status, total_amount, created_at, updated_at)
+SELECT 'BENCH-' || lpad(g::text, 10, '0'),
+       u.min_id + (g % u.n),
+       CASE WHEN r < 0.70 THEN 'DELIVERED' WHEN r < 0.80 THEN 'SHIPPED' WHEN r < 0.86 THEN 'PROCESSING'
+            WHEN r < 0.92 THEN 'CONFIRMED' ELSE 'CANCELLED' END,
+       0,
+       created_at,
+       created_at + interval '1 day' * random()
+FROM (
+    SELECT g, random() AS r,
+           date_trunc('second', now() - interval '1 day' * :days * random()) AS created_at
+    FROM generate_series(1, :scale_orders) g
+) o,
+(SELECT min(id) AS min_id, count(*) AS n FROM users WHERE email LIKE 'bench-%@example.com') u;
+
+-- 1 to 2 * items_per_order - 1 items per order, popularity skewed towards low book ids
+INSERT INTO order_items (order_id, book_id, quantity, unit_price, subtotal, created_at)
+SELECT i.order_id, i.book_id, i.quantity, b.price, b.price * i.quantity, i.created_at
+FROM (
+    SELECT o.id AS order_id, o.created_at,
+           bk.min_id + floor(bk.n * power(random(), 3))::bigint AS book_id,
+           1 + floor(random() * 3)::int AS quantity
+    FROM orders o
+    CROSS JOIN LATERAL generate_series(1, 1 + floor(random() * (2 * :items_per_order - 1))::int) item
+    CROSS JOIN (SELECT min(id) AS min_id, count(*) AS n FROM books WHERE isbn LIKE 'BENCH-%') bk
+    WHERE o.order_number LIKE 'BENCH-%'
+) i
+JOIN books b ON b.id = i.book_id;
+
+UPDATE orders o SET total_amount = t.total
+FROM (SELECT order_id, sum(subtotal) AS total FROM order_items GROUP BY order_id) t
+WHERE o.id = t.order_id AND o.order_number LIKE 'BENCH-%';
+
+-- Same statements as SalesRollupJob.rebuildDay, for every day at once
+INSERT INTO daily_book_sales (sale_date, book_id, units, revenue, orders)
+SELECT CAST(o.created_at AS date), oi.book_id, SUM(oi.quantity), SUM(oi.subtotal), count(DISTINCT oi.order_id)
+FROM orders o
+JOIN order_items oi ON oi.order_id = o.id
+WHERE o.status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED')
+GROUP BY 1, 2;
+
+INSERT INTO daily_genre_sales (sale_date, genre, units, revenue)
+SELECT d.sale_date, b.genre, SUM(d.units), SUM(d.revenue)
+FROM daily_book_sales d
+JOIN books b ON b.id = d.book_id
+GROUP BY d.sale_date, b.genre;
+
+-- Rollups are current, so SalesRollupJob continues from here instead of rebuilding every day
+INSERT INTO rollup_watermarks (name, watermark, tx_watermark)
+VALUES ('sales', now(), pg_snapshot_xmin(pg_current_snapshot())::text);
+
+ANALYZE authors, books, users, orders, order_items, daily_book_sales, daily_genre_sales;
+
+SELECT (SELECT count(*) FROM orders WHERE order_number LIKE 'BENCH-%') AS orders,
+       (SELECT count(*) FROM order_items) AS order_items,
+       (SELECT count(*) FROM daily_book_sales) AS daily_book_sales,
+       (SELECT count(*) FROM daily_genre_sales) AS daily_genre_sales;
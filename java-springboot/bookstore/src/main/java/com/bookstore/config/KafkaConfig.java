@@ -1,14 +1,29 @@
 package com.bookstore.config;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.boot.autoconfigure.kafka.ConcurrentKafkaListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.kafka.annotation.EnableKafka;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.ExponentialBackOff;
+import org.springframework.util.backoff.FixedBackOff;
 
 /**
  * Kafka Configuration
  * Spring Boot auto-configures KafkaTemplate and consumer factories based on application.properties
- * This config adds topic creation for BOOK_CREATED and CART_DEACTIVATED events
+ * This config adds topic creation for BOOK_CREATED, CART_DEACTIVATED, CHECKOUT_REQUESTED, ORDER_STATUS_CHANGED
+ * and LOW_STOCK_ALERT events, their dead-letter topics, and the listener error handling:
+ * records that keep failing go to <topic>-dlt after a few attempts, except on CHECKOUT_REQUESTED
+ * (checkoutListenerContainerFactory), which retries infrastructure failures until they clear.
+ * Records that can never succeed (unparseable or invalid payloads) go to the DLT straight away.
  */
 @EnableKafka
 @Configuration
@@ -23,4 +38,72 @@ public class KafkaConfig {
     public NewTopic cartDeactivatedTopic() {
         return new NewTopic("CART_DEACTIVATED", 1, (short) 1);
     }
+
+    /**
+     * Keyed by user id, so one user's checkouts stay ordered while partitions spread the load
+     */
+    @Bean
+    public NewTopic checkoutRequestedTopic() {
+        return new NewTopic("CHECKOUT_REQUESTED", 3, (short) 1);
+    }
+
+    @Bean
+    public NewTopic orderStatusChangedTopic() {
+        return new NewTopic("ORDER_STATUS_CHANGED", 3, (short) 1);
+    }
+
+    @Bean
+    public NewTopic lowStockAlertTopic() {
+        return new NewTopic("LOW_STOCK_ALERT", 1, (short) 1);
+    }
+
+    // Dead-letter topics need at least the partitions of their source (records keep their partition)
+    @Bean
+    public NewTopic bookCreatedDltTopic() {
+        return new NewTopic("BOOK_CREATED-dlt", 1, (short) 1);
+    }
+
+    @Bean
+    public NewTopic cartDeactivatedDltTopic() {
+        return new NewTopic("CART_DEACTIVATED-dlt", 1, (short) 1);
+    }
+
+    @Bean
+    public NewTopic checkoutRequestedDltTopic() {
+        return new NewTopic("CHECKOUT_REQUESTED-dlt", 3, (short) 1);
+    }
+
+    /**
+     * Default for every listener (picked up by Boot's container factory): three retries a second
+     * apart, then the record goes to its DLT so one poison record can't block its partition
+     */
+    @Bean
+    public CommonErrorHandler kafkaErrorHandler(KafkaTemplate<String, String> kafkaTemplate) {
+        return errorHandler(kafkaTemplate, new FixedBackOff(1000L, 3));
+    }
+
+    /**
+     * Container factory for CHECKOUT_REQUESTED: failed deliveries are retried with backoff and
+     * without a retry limit, so an outage delays queued checkouts instead of dropping them
+     */
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<Object, Object> checkoutListenerContainerFactory(
+            ConcurrentKafkaListenerContainerFactoryConfigurer configurer,
+            ConsumerFactory<Object, Object> consumerFactory,
+            KafkaTemplate<String, String> kafkaTemplate
+    ) {
+        ConcurrentKafkaListenerContainerFactory<Object, Object> factory = new ConcurrentKafkaListenerContainerFactory<>();
+        configurer.configure(factory, consumerFactory);
+        ExponentialBackOff backOff = new ExponentialBackOff(1000L, 2.0);
+        backOff.setMaxInterval(60_000L);
+        factory.setCommonErrorHandler(errorHandler(kafkaTemplate, backOff));
+        return factory;
+    }
+
+    private static DefaultErrorHandler errorHandler(KafkaTemplate<String, String> kafkaTemplate, BackOff backOff) {
+        DefaultErrorHandler errorHandler = new DefaultErrorHandler(new DeadLetterPublishingRecoverer(kafkaTemplate), backOff);
+        // On top of the defaults (deserialization, conversion and argument validation failures)
+        errorHandler.addNotRetryableExceptions(JsonProcessingException.class, IllegalArgumentException.class);
+        return errorHandler;
+    }
 }
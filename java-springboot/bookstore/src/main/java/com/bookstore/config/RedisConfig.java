@@ -0,0 +1,37 @@
+package com.bookstore.config;
+
+import com.bookstore.services.AdminDashboardFeedService;
+import com.bookstore.services.CheckoutStatusService;
+import com.bookstore.services.LowStockAlertService;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.List;
+
+/**
+ * Redis pub/sub wiring
+ * Used to fan out events produced on one instance to SSE clients connected to any instance
+ */
+@Configuration
+public class RedisConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            CheckoutStatusService checkoutStatusService,
+            LowStockAlertService lowStockAlertService,
+            AdminDashboardFeedService adminDashboardFeedService
+    ) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(checkoutStatusService, new ChannelTopic(CheckoutStatusService.STATUS_CHANNEL));
+        container.addMessageListener(lowStockAlertService, new ChannelTopic(LowStockAlertService.ALERT_CHANNEL));
+        container.addMessageListener(adminDashboardFeedService, List.of(
+                new ChannelTopic(AdminDashboardFeedService.FEED_CHANNEL),
+                new ChannelTopic(LowStockAlertService.ALERT_CHANNEL)));
+        return container;
+    }
+}
@@ -0,0 +1,12 @@
+package com.bookstore.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Enables @Scheduled background jobs (see com.bookstore.jobs)
+ */
+@EnableScheduling
+@Configuration
+public class SchedulingConfig {
+}
@@ -3,9 +3,19 @@ package com.bookstore.constants;
 public class TableNames {
   public static final String AUTHORS = "authors";
   public static final String BOOKS = "books";
+  public static final String BOOK_STOCK_SHARDS = "book_stock_shards";
   public static final String USERS = "users";
   public static final String CARTS = "carts";
   public static final String CART_ITEMS = "cart_items";
+  public static final String CARTS_ARCHIVE = "carts_archive";
+  public static final String CART_ITEMS_ARCHIVE = "cart_items_archive";
   public static final String ORDERS = "orders";
   public static final String ORDER_ITEMS = "order_items";
+  public static final String OUTBOX_EVENTS = "outbox_events";
+  public static final String COUNTER_SHARDS = "counter_shards";
+  public static final String STOCK_LEDGER = "stock_ledger";
+  public static final String DAILY_BOOK_SALES = "daily_book_sales";
+  public static final String DAILY_GENRE_SALES = "daily_genre_sales";
+  public static final String ROLLUP_WATERMARKS = "rollup_watermarks";
+  public static final String LOW_STOCK_ALERTS = "low_stock_alerts";
 }
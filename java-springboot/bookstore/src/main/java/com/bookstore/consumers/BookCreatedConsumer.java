@@ -4,6 +4,7 @@ import com.bookstore.domain.book.Book;
 import com.bookstore.repository.BookRepository;
 import com.bookstore.services.BloomFilterService;
 import com.bookstore.services.OpenSearchService;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -12,6 +13,7 @@ import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.Map;
 
 /**
  * Kafka Consumer for BOOK_CREATED events
@@ -31,9 +33,9 @@ public class BookCreatedConsumer {
     @KafkaListener(topics = "BOOK_CREATED", groupId = "${spring.kafka.consumer.group-id:bookstore-consumer-group}")
     public void consumeBookCreated(String message, Acknowledgment acknowledgment) {
         try {
-            // Parse the book JSON from Kafka message to get ID
-            Book book = objectMapper.readValue(message, Book.class);
-            Long bookId = book.getId();
+            // Parse the event payload to get the book ID
+            Map<String, Object> payload = objectMapper.readValue(message, new TypeReference<Map<String, Object>>() {});
+            Long bookId = Long.valueOf(payload.get("id").toString());
 
             // Fetch full book with author from database (ensures author is loaded)
             Book fullBook = bookRepository.findById(bookId)
@@ -61,11 +63,12 @@ public class BookCreatedConsumer {
                 acknowledgment.acknowledge();
             }
         } catch (IOException e) {
-            log.error("Failed to parse book from Kafka message: {}", message, e);
-            // Don't acknowledge - let Kafka retry
-        } catch (Exception e) {
+            // Can never succeed: not retried, goes straight to the dead-letter topic (see KafkaConfig)
+            throw new IllegalArgumentException("Failed to parse book created event: " + message, e);
+        } catch (RuntimeException e) {
+            // Retried by the container's error handler, then dead-lettered
             log.error("Failed to index book to OpenSearch or add to BloomFilter", e);
-            // Don't acknowledge - let Kafka retry
+            throw e;
         }
     }
 }
@@ -33,8 +33,8 @@ public class CartDeactivatedConsumer {
             Long cartId = Long.valueOf(payload.get("cartId").toString());
             String orderNumber = payload.get("orderNumber").toString();
 
-            // Deactivate cart and create new active cart
-            cartService.deactivateCart(userId);
+            // Deactivate that cart (if still active) and create new active cart
+            cartService.deactivateCart(userId, cartId);
 
             log.info("Successfully deactivated cart {} and created new active cart for user {} after order {}",
                     cartId, userId, orderNumber);
@@ -44,11 +44,12 @@ public class CartDeactivatedConsumer {
                 acknowledgment.acknowledge();
             }
         } catch (IOException e) {
-            log.error("Failed to parse cart deactivation event: {}", message, e);
-            // Don't acknowledge - let Kafka retry
-        } catch (Exception e) {
+            // Can never succeed: not retried, goes straight to the dead-letter topic (see KafkaConfig)
+            throw new IllegalArgumentException("Failed to parse cart deactivation event: " + message, e);
+        } catch (RuntimeException e) {
+            // Retried by the container's error handler, then dead-lettered
             log.error("Failed to deactivate cart", e);
-            // Don't acknowledge - let Kafka retry
+            throw e;
         }
     }
 }
@@ -0,0 +1,112 @@
+package com.bookstore.consumers;
+
+import com.bookstore.dto.CheckoutStatusResponse;
+import com.bookstore.dto.OrderResponse;
+import com.bookstore.repository.OrderRepository;
+import com.bookstore.services.CheckoutService;
+import com.bookstore.services.CheckoutStatusService;
+import com.bookstore.services.OrderService;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Kafka Consumer for CHECKOUT_REQUESTED events
+ * Places queued checkouts in batches (one transaction per chunk, see CheckoutService.checkoutBatch)
+ * and publishes each result to CheckoutStatusService
+ *
+ * Checkout failures (empty cart, insufficient stock, changed prices) are reported as FAILED
+ * statuses, not retried. Infrastructure failures propagate instead: the offsets stay uncommitted
+ * and the container's error handler redelivers the batch until it succeeds
+ * (checkoutListenerContainerFactory in KafkaConfig). Redelivered requests
+ * whose order already exists are skipped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class CheckoutRequestedConsumer {
+
+    private final CheckoutService checkoutService;
+    private final CheckoutStatusService checkoutStatusService;
+    private final OrderService orderService;
+    private final OrderRepository orderRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${checkout.async.batch-size:50}")
+    private int batchSize;
+
+    @KafkaListener(topics = "CHECKOUT_REQUESTED", groupId = "${spring.kafka.consumer.group-id:bookstore-consumer-group}", batch = "true",
+            containerFactory = "checkoutListenerContainerFactory")
+    public void consumeCheckoutRequested(List<String> messages) {
+        List<CheckoutService.CheckoutRequest> batch = new ArrayList<>();
+
+        for (String message : messages) {
+            CheckoutService.CheckoutRequest request = toRequest(message);
+            if (request != null) {
+                batch.add(request);
+            }
+        }
+
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            checkoutService.checkoutBatch(batch.subList(from, Math.min(from + batchSize, batch.size())));
+        }
+        // Every request now has a terminal status (or was malformed); offsets are committed on return.
+        // An infrastructure failure above throws instead, leaving the batch to be redelivered
+        log.info("Processed {} queued checkouts", batch.size());
+    }
+
+    private CheckoutService.CheckoutRequest toRequest(String message) {
+        Long userId;
+        String orderNumber;
+        try {
+            Map<String, Object> payload = objectMapper.readValue(message, new TypeReference<Map<String, Object>>() {});
+            userId = Long.valueOf(payload.get("userId").toString());
+            orderNumber = payload.get("orderNumber").toString();
+        } catch (IOException | RuntimeException e) {
+            log.error("Skipping malformed checkout request: {}", message, e);
+            return null;
+        }
+
+        if (orderRepository.existsByOrderNumber(orderNumber)) {
+            // Redelivery after the order was committed - republish the outcome and move on
+            log.info("Checkout {} already placed, skipping redelivery", orderNumber);
+            complete(userId, orderNumber, orderService.getOrderByOrderNumber(orderNumber));
+            return null;
+        }
+
+        CompletableFuture<OrderResponse> result = new CompletableFuture<>();
+        result.whenComplete((order, ex) -> {
+            if (ex == null) {
+                complete(userId, orderNumber, order);
+            } else {
+                log.info("Queued checkout {} for user {} failed: {}", orderNumber, userId, ex.getMessage());
+                checkoutStatusService.update(CheckoutStatusResponse.builder()
+                        .orderNumber(orderNumber)
+                        .userId(userId)
+                        .status(CheckoutStatusResponse.Status.FAILED)
+                        .error(ex.getMessage())
+                        .build());
+            }
+        });
+        return new CheckoutService.CheckoutRequest(userId, orderNumber, result);
+    }
+
+    private void complete(Long userId, String orderNumber, OrderResponse order) {
+        checkoutStatusService.update(CheckoutStatusResponse.builder()
+                .orderNumber(orderNumber)
+                .userId(userId)
+                .status(CheckoutStatusResponse.Status.COMPLETED)
+                .order(order)
+                .build());
+    }
+}
@@ -2,10 +2,14 @@ package com.bookstore.controllers;
 
 import com.bookstore.annotations.RequireAdmin;
 import com.bookstore.dto.AdminDashboardResponse;
+import com.bookstore.services.AdminDashboardFeedService;
 import com.bookstore.services.AdminDashboardService;
+import com.bookstore.services.LowStockAlertService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -16,17 +20,35 @@ import java.util.List;
 public class AdminDashboardController {
 
     private final AdminDashboardService adminDashboardService;
+    private final AdminDashboardFeedService adminDashboardFeedService;
+    private final LowStockAlertService lowStockAlertService;
 
     @GetMapping
     public ResponseEntity<AdminDashboardResponse> getDashboard() {
         return ResponseEntity.ok(adminDashboardService.getDashboard());
     }
 
+    /**
+     * Live dashboard: dashboard-delta events (see AdminDashboardDelta) and low-stock-alert events
+     * Open the stream first, then load GET /api/admin/dashboard and apply deltas on top
+     */
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamDashboard() {
+        return ResponseEntity.ok(adminDashboardFeedService.subscribe());
+    }
+
     @GetMapping("/low-stock")
     public ResponseEntity<List<AdminDashboardResponse.LowStockBook>> getLowStockBooks(
             @RequestParam(defaultValue = "10") int threshold,
             @RequestParam(defaultValue = "20") int limit) {
         return ResponseEntity.ok(adminDashboardService.getLowStockBooks(threshold, limit));
     }
-}
 
+    /**
+     * Low-stock alerts as they are raised, from any instance
+     */
+    @GetMapping(value = "/low-stock/alerts", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamLowStockAlerts() {
+        return ResponseEntity.ok(lowStockAlertService.subscribe());
+    }
+}
@@ -0,0 +1,27 @@
+package com.bookstore.controllers;
+
+import com.bookstore.annotations.RequireAdmin;
+import com.bookstore.dto.BulkCancelRequest;
+import com.bookstore.dto.BulkCancelResponse;
+import com.bookstore.services.OrderService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/orders")
+@RequireAdmin
+@RequiredArgsConstructor
+public class AdminOrderController {
+
+    private final OrderService orderService;
+
+    /**
+     * Cancels orders in bulk (e.g. after payment failures) and restores their stock
+     */
+    @PostMapping("/cancel")
+    public ResponseEntity<BulkCancelResponse> cancelOrders(@Valid @RequestBody BulkCancelRequest request) {
+        return ResponseEntity.ok(orderService.cancelOrders(request.getOrderNumbers()));
+    }
+}
@@ -0,0 +1,57 @@
+package com.bookstore.controllers;
+
+import com.bookstore.annotations.RequireAdmin;
+import com.bookstore.dto.SalesPeriodResponse;
+import com.bookstore.dto.TopSellerResponse;
+import com.bookstore.services.SalesReportService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Sales reports from the daily rollups; from/to are inclusive and default to the last 30 days
+ */
+@RestController
+@RequestMapping("/api/admin/sales")
+@RequireAdmin
+@RequiredArgsConstructor
+public class AdminSalesController {
+
+    private static final int DEFAULT_RANGE_DAYS = 30;
+
+    private final SalesReportService salesReportService;
+
+    @GetMapping("/top-sellers")
+    public ResponseEntity<List<TopSellerResponse>> getTopSellers(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "REVENUE") SalesReportService.Ranking by,
+            @RequestParam(defaultValue = "10") int limit) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_RANGE_DAYS - 1);
+        return ResponseEntity.ok(salesReportService.getTopSellers(start, end, by, limit));
+    }
+
+    @GetMapping("/revenue")
+    public ResponseEntity<List<SalesPeriodResponse>> getRevenueByPeriod(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "DAY") SalesReportService.Period period) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_RANGE_DAYS - 1);
+        return ResponseEntity.ok(salesReportService.getRevenueByPeriod(start, end, period));
+    }
+
+    @GetMapping("/genres")
+    public ResponseEntity<List<SalesPeriodResponse>> getRevenueByGenre(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(DEFAULT_RANGE_DAYS - 1);
+        return ResponseEntity.ok(salesReportService.getRevenueByGenre(start, end));
+    }
+}
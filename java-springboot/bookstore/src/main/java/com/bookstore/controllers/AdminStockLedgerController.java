@@ -0,0 +1,54 @@
+package com.bookstore.controllers;
+
+import com.bookstore.annotations.RequireAdmin;
+import com.bookstore.dto.StockMovementResponse;
+import com.bookstore.dto.StockRollupResponse;
+import com.bookstore.services.StockLedgerService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Stock ledger reads; ranges are [from, to) and default to the last 7 days
+ */
+@RestController
+@RequestMapping("/api/admin/stock-ledger")
+@RequireAdmin
+@RequiredArgsConstructor
+public class AdminStockLedgerController {
+
+    private static final Duration DEFAULT_RANGE = Duration.ofDays(7);
+    private static final int MAX_MOVEMENTS = 1000;
+
+    private final StockLedgerService stockLedgerService;
+
+    @GetMapping
+    public ResponseEntity<List<StockMovementResponse>> getMovements(
+            @RequestParam(required = false) Long bookId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "100") int limit) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minus(DEFAULT_RANGE);
+        return ResponseEntity.ok(stockLedgerService.getMovements(bookId, start, end, Math.max(1, Math.min(limit, MAX_MOVEMENTS))));
+    }
+
+    /**
+     * Downsampled series for charts, e.g. bucket=PT1H or bucket=P1D
+     */
+    @GetMapping("/rollups")
+    public ResponseEntity<List<StockRollupResponse>> getRollups(
+            @RequestParam(required = false) Long bookId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime to,
+            @RequestParam(defaultValue = "PT1H") Duration bucket) {
+        LocalDateTime end = to != null ? to : LocalDateTime.now();
+        LocalDateTime start = from != null ? from : end.minus(DEFAULT_RANGE);
+        return ResponseEntity.ok(stockLedgerService.getRollups(bookId, start, end, bucket));
+    }
+}
@@ -8,6 +8,7 @@ import com.bookstore.dto.PresignedUrlResponse;
 import com.bookstore.repository.BookRepository;
 import com.bookstore.services.BookService;
 import com.bookstore.services.BloomFilterService;
+import com.bookstore.services.InventoryService;
 import com.bookstore.services.S3Service;
 import com.bookstore.services.SearchService;
 import com.bookstore.utils.SecurityUtils;
@@ -34,6 +35,7 @@ public class BookController {
     private final S3Service s3Service;
     private final BloomFilterService bloomFilterService;
     private final BookRepository bookRepository;
+    private final InventoryService inventoryService;
 
     @Value("${aws.s3.presigned-url-expiration-minutes:15}")
     private long expirationMinutes;
@@ -66,6 +68,18 @@ public class BookController {
         return ResponseEntity.ok(bookService.updateStock(bookId, delta));
     }
 
+    /**
+     * Opt a flash-sale title into sharded stock (shards > 0) or fold it back into a single counter (shards = 0)
+     */
+    @RequireAdmin
+    @PutMapping("/{bookId}/stock/shards")
+    public ResponseEntity<Book> reshardStock(
+            @PathVariable Long bookId,
+            @RequestParam int shards
+    ) {
+        return ResponseEntity.ok(inventoryService.reshardStock(bookId, shards));
+    }
+
     @GetMapping("/search")
     public ResponseEntity<List<Book>> searchBooks(
             @RequestParam @NotBlank(message = "Search query is required") String query) {
@@ -1,18 +1,28 @@
 package com.bookstore.controllers;
 
 import com.bookstore.dto.CartResponse;
+import com.bookstore.dto.CheckoutStatusResponse;
 import com.bookstore.dto.EditCartRequest;
+import com.bookstore.dto.OrderHistoryResponse;
 import com.bookstore.dto.OrderResponse;
+import com.bookstore.services.AsyncCheckoutService;
 import com.bookstore.services.CartService;
-import com.bookstore.services.CheckoutService;
+import com.bookstore.services.CheckoutCoalescer;
+import com.bookstore.services.CheckoutStatusService;
+import com.bookstore.services.IdempotencyService;
 import com.bookstore.services.OrderService;
 import com.bookstore.utils.SecurityUtils;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.List;
+import java.net.URI;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/api")
@@ -20,8 +30,11 @@ import java.util.List;
 public class CartController {
 
     private final CartService cartService;
-    private final CheckoutService checkoutService;
+    private final CheckoutCoalescer checkoutCoalescer;
+    private final AsyncCheckoutService asyncCheckoutService;
+    private final CheckoutStatusService checkoutStatusService;
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
 
     @GetMapping("/cart")
     public ResponseEntity<CartResponse> getCart() {
@@ -33,53 +46,134 @@ public class CartController {
     }
 
     @PostMapping("/cart/edit")
-    public ResponseEntity<CartResponse> editCart(@Valid @RequestBody EditCartRequest request) {
+    public ResponseEntity<CartResponse> editCart(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @Valid @RequestBody EditCartRequest request
+    ) {
         Long userId = SecurityUtils.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
-        return ResponseEntity.ok(cartService.editCart(userId, request));
+        return idempotencyService.execute(userId, "cart.edit", idempotencyKey, request, CartResponse.class, () -> {
+            try {
+                return ResponseEntity.ok(cartService.editCart(userId, request));
+            } catch (OptimisticLockingFailureException e) {
+                // Another device won the race - hand back the current cart so the client can re-apply its edit
+                return ResponseEntity.status(409).body(cartService.getCart(userId));
+            } catch (CartService.EditConflictException e) {
+                // Both devices changed the same books - the client has to choose
+                return ResponseEntity.status(409).body(e.getCurrent());
+            }
+        });
     }
 
     @DeleteMapping("/cart/items/{itemId}")
-    public ResponseEntity<CartResponse> removeFromCart(@PathVariable Long itemId) {
+    public ResponseEntity<CartResponse> removeFromCart(
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @PathVariable Long itemId
+    ) {
         Long userId = SecurityUtils.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
-        return ResponseEntity.ok(cartService.removeFromCart(userId, itemId));
+        return idempotencyService.execute(userId, "cart.remove", idempotencyKey, itemId, CartResponse.class,
+                () -> ResponseEntity.ok(cartService.removeFromCart(userId, itemId)));
     }
 
     @DeleteMapping("/cart")
-    public ResponseEntity<Void> clearCart() {
+    public ResponseEntity<Void> clearCart(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
         Long userId = SecurityUtils.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
-        cartService.clearCart(userId);
-        return ResponseEntity.noContent().build();
+        return idempotencyService.execute(userId, "cart.clear", idempotencyKey, null, Void.class, () -> {
+            cartService.clearCart(userId);
+            return ResponseEntity.noContent().build();
+        });
     }
 
+    /**
+     * Completes asynchronously when the checkout was queued behind other buyers of a hot book
+     */
     @PostMapping("/checkout")
-    public ResponseEntity<OrderResponse> checkout() {
+    public CompletableFuture<ResponseEntity<OrderResponse>> checkout(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        if (userId == null) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(401).build());
+        }
+        return idempotencyService.executeAsync(userId, "checkout", idempotencyKey, null, OrderResponse.class,
+                () -> checkoutCoalescer.checkout(userId).thenApply(ResponseEntity::ok));
+    }
+
+    /**
+     * Queues the checkout and answers 202 right away; follow it via the status or events endpoint
+     */
+    @PostMapping("/checkout/async")
+    public ResponseEntity<CheckoutStatusResponse> checkoutAsync(@RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return idempotencyService.execute(userId, "checkout.async", idempotencyKey, null, CheckoutStatusResponse.class, () -> {
+            CheckoutStatusResponse status = asyncCheckoutService.enqueue(userId);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/checkout/" + status.getOrderNumber() + "/status"))
+                    .body(status);
+        });
+    }
+
+    @GetMapping("/checkout/{orderNumber}/status")
+    public ResponseEntity<CheckoutStatusResponse> getCheckoutStatus(@PathVariable String orderNumber) {
         Long userId = SecurityUtils.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
-        return ResponseEntity.ok(checkoutService.checkout(userId));
+        return findOwnCheckout(userId, orderNumber)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
     }
 
+    @GetMapping(value = "/checkout/{orderNumber}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamCheckoutStatus(@PathVariable String orderNumber) {
+        Long userId = SecurityUtils.getCurrentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(401).build();
+        }
+        return findOwnCheckout(userId, orderNumber)
+                .map(status -> ResponseEntity.ok(checkoutStatusService.subscribe(status)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Order history, newest first; follow nextCursor for older orders
+     */
     @GetMapping("/orders")
-    public ResponseEntity<List<OrderResponse>> getOrders() {
+    public ResponseEntity<OrderHistoryResponse> getOrders(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit
+    ) {
         Long userId = SecurityUtils.getCurrentUserId();
         if (userId == null) {
             return ResponseEntity.status(401).build();
         }
-        return ResponseEntity.ok(orderService.getUserOrders(userId));
+        return ResponseEntity.ok(orderService.getUserOrders(userId, cursor, limit));
     }
 
     @GetMapping("/orders/{orderNumber}")
     public ResponseEntity<OrderResponse> getOrder(@PathVariable String orderNumber) {
-        return ResponseEntity.ok(orderService.getOrderByOrderNumber(orderNumber));
+        Long userId = SecurityUtils.getCurrentUserId();
+        if (userId == null) {
+            return ResponseEntity.status(401).build();
+        }
+        // Someone else's order number is reported as unknown
+        return orderService.getUserOrder(userId, orderNumber)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Someone else's order number is reported as unknown
+    private Optional<CheckoutStatusResponse> findOwnCheckout(Long userId, String orderNumber) {
+        return checkoutStatusService.get(orderNumber)
+                .filter(status -> userId.equals(status.getUserId()));
     }
 }
@@ -6,7 +6,11 @@ import jakarta.persistence.*;
 import lombok.*;
 
 @Entity
-@Table(name = TableNames.BOOKS, indexes = @Index(name = "idx_isbn", columnList = "isbn", unique = true))
+@Table(name = TableNames.BOOKS, indexes = {
+    @Index(name = "idx_isbn", columnList = "isbn", unique = true),
+    // Low-stock / out-of-stock lookups and stock-ordered listings
+    @Index(name = "idx_book_stock", columnList = "stock, id")
+})
 @Getter
 @Setter
 @Builder
@@ -28,7 +32,10 @@ public class Book {
   private BigDecimal price;
 
   @Column(nullable = false)
-  private Integer stock;
+  private Integer stock; // For sharded books, the aggregate of book_stock_shards (kept in sync by ShardedStockSyncJob)
+
+  @Column(name = "stock_shards")
+  private Integer stockShards; // Opt-in for flash-sale titles: null = stock lives in this row only
 
   @ManyToOne(fetch = FetchType.LAZY)
   @JoinColumn(name = "author_id", nullable = false)
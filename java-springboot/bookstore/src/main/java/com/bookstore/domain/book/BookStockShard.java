@@ -0,0 +1,41 @@
+package com.bookstore.domain.book;
+
+import com.bookstore.constants.TableNames;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * One counter slot of a sharded book's stock
+ * Checkout decrements a random slot, so contention on a hot title is spread over K rows
+ */
+@Entity
+@Table(name = TableNames.BOOK_STOCK_SHARDS)
+@IdClass(BookStockShard.Key.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BookStockShard {
+
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Id
+    @Column(name = "shard")
+    private Integer shard;
+
+    @Column(nullable = false)
+    private Integer stock;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long bookId;
+        private Integer shard;
+    }
+}
@@ -0,0 +1,51 @@
+package com.bookstore.domain.book;
+
+import com.bookstore.constants.TableNames;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * Last alert raised for a book at a given level (see LowStockAlertService)
+ * Used to suppress repeats while stock hovers around the threshold
+ */
+@Entity
+@Table(name = TableNames.LOW_STOCK_ALERTS)
+@IdClass(LowStockAlert.Key.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockAlert {
+
+    public enum Level {
+        LOW,
+        OUT_OF_STOCK
+    }
+
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "level")
+    private Level level;
+
+    @Column(nullable = false)
+    private Integer stock;
+
+    @Column(name = "alerted_at", nullable = false)
+    private LocalDateTime alertedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long bookId;
+        private Level level;
+    }
+}
@@ -0,0 +1,31 @@
+package com.bookstore.domain.book;
+
+import java.util.Arrays;
+
+/**
+ * Why a stock_ledger entry was written
+ * Stored as its code, so codes must never be reused or renumbered
+ */
+public enum StockChangeReason {
+    INITIAL(1),
+    ADJUSTMENT(2),
+    CHECKOUT(3),
+    CANCELLATION(4);
+
+    private final short code;
+
+    StockChangeReason(int code) {
+        this.code = (short) code;
+    }
+
+    public short getCode() {
+        return code;
+    }
+
+    public static StockChangeReason fromCode(short code) {
+        return Arrays.stream(values())
+                .filter(reason -> reason.code == code)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown stock change reason: " + code));
+    }
+}
@@ -0,0 +1,45 @@
+package com.bookstore.domain.cart;
+
+import com.bookstore.constants.TableNames;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of an inactive cart, written by CartCompactionJob
+ * Ids are carried over from carts, so no generation strategy
+ */
+@Entity
+@Table(name = TableNames.CARTS_ARCHIVE, indexes = {
+    @Index(name = "idx_cart_archive_user_id", columnList = "user_id")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedCart {
+
+    @Id
+    private Long id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "total_amount")
+    private BigDecimal totalAmount;
+
+    @Column(name = "total_items")
+    private Integer totalItems;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -0,0 +1,45 @@
+package com.bookstore.domain.cart;
+
+import com.bookstore.constants.TableNames;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Cold copy of an item from an archived cart
+ * Plain columns instead of associations - archived rows are never joined back to live tables
+ */
+@Entity
+@Table(name = TableNames.CART_ITEMS_ARCHIVE, indexes = {
+    @Index(name = "idx_cart_item_archive_cart_id", columnList = "cart_id")
+})
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArchivedCartItem {
+
+    @Id
+    private Long id;
+
+    @Column(name = "cart_id", nullable = false)
+    private Long cartId;
+
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(nullable = false)
+    private Integer quantity;
+
+    @Column(name = "book_title")
+    private String bookTitle;
+
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
@@ -4,8 +4,10 @@ import com.bookstore.constants.TableNames;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 
 @Entity
@@ -34,12 +36,90 @@ public class Cart {
     @Builder.Default
     private List<CartItem> items = new ArrayList<>();
 
+    // Running totals, maintained by addItem/removeItem/clearItems so reads never walk the items
+    @Column(name = "total_amount")
+    @Builder.Default
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "total_items")
+    @Builder.Default
+    private Integer totalItems = 0;
+
+    // Bumped on every mutation, clients echo it back so concurrent devices can be merged
+    @Version
+    @Column(columnDefinition = "bigint default 0")
+    private Long version;
+
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    public void addItem(CartItem item) {
+        touch();
+        item.setCart(this);
+        items.add(item);
+        totalAmount = getTotalAmount().add(item.getSubtotal());
+        totalItems = getTotalItems() + item.getQuantity();
+    }
+
+    public boolean removeItem(Long cartItemId) {
+        Iterator<CartItem> iterator = items.iterator();
+        while (iterator.hasNext()) {
+            CartItem item = iterator.next();
+            if (item.getId().equals(cartItemId)) {
+                touch();
+                totalAmount = getTotalAmount().subtract(item.getSubtotal());
+                totalItems = getTotalItems() - item.getQuantity();
+                iterator.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clearItems() {
+        touch();
+        items.clear();
+        totalAmount = BigDecimal.ZERO;
+        totalItems = 0;
+    }
+
+    // Items are the inverse side, so mark the cart itself dirty to bump the version
+    private void touch() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    /**
+     * Rebuilds running totals from items in a single pass
+     */
+    public void recalculateTotals() {
+        BigDecimal amount = BigDecimal.ZERO;
+        int quantity = 0;
+        for (CartItem item : items) {
+            amount = amount.add(item.getSubtotal());
+            quantity += item.getQuantity();
+        }
+        totalAmount = amount;
+        totalItems = quantity;
+    }
+
+    // Totals are null on carts created before the columns existed
+    public BigDecimal getTotalAmount() {
+        if (totalAmount == null) {
+            recalculateTotals();
+        }
+        return totalAmount;
+    }
+
+    public Integer getTotalItems() {
+        if (totalItems == null) {
+            recalculateTotals();
+        }
+        return totalItems;
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
@@ -5,6 +5,7 @@ import com.bookstore.domain.book.Book;
 import jakarta.persistence.*;
 import lombok.*;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
@@ -34,12 +35,33 @@ public class CartItem {
     @Column(nullable = false)
     private Integer quantity;
 
+    @Column(name = "book_title")
+    private String bookTitle; // Snapshot of title at time of add
+
+    @Column(name = "unit_price")
+    private BigDecimal unitPrice; // Snapshot of price at time of add, re-checked at checkout
+
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
 
+    /**
+     * Items added before the snapshot columns existed fall back to the book itself
+     */
+    public String getBookTitle() {
+        return bookTitle != null ? bookTitle : book.getTitle();
+    }
+
+    public BigDecimal getUnitPrice() {
+        return unitPrice != null ? unitPrice : book.getPrice();
+    }
+
+    public BigDecimal getSubtotal() {
+        return getUnitPrice().multiply(BigDecimal.valueOf(quantity));
+    }
+
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
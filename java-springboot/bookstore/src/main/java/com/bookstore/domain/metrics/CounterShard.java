@@ -0,0 +1,43 @@
+package com.bookstore.domain.metrics;
+
+import com.bookstore.constants.TableNames;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+/**
+ * One slot of an incrementally maintained counter (see CounterService)
+ * A counter's value is the sum of its slots; writers add to a random slot so concurrent
+ * transactions rarely wait on the same row
+ */
+@Entity
+@Table(name = TableNames.COUNTER_SHARDS)
+@IdClass(CounterShard.Key.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CounterShard {
+
+    @Id
+    @Column(name = "name")
+    private String name;
+
+    @Id
+    @Column(name = "shard")
+    private Integer shard;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal value;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String name;
+        private Integer shard;
+    }
+}
@@ -12,8 +12,15 @@ import java.util.List;
 
 @Entity
 @Table(name = TableNames.ORDERS, indexes = {
-    @Index(name = "idx_order_user_id", columnList = "user_id"),
-    @Index(name = "idx_order_status", columnList = "status")
+    // Order history: WHERE user_id = ? ORDER BY created_at DESC, id DESC (keyset paginated)
+    @Index(name = "idx_order_user_created_at", columnList = "user_id, created_at DESC, id DESC"),
+    @Index(name = "idx_order_status", columnList = "status"),
+    // Admin dashboard recent orders (ORDER BY created_at DESC LIMIT n)
+    @Index(name = "idx_order_created_at", columnList = "created_at"),
+    // Order detail ownership check (order_number + user_id) answered from the index alone
+    @Index(name = "idx_order_number_user_id", columnList = "order_number, user_id"),
+    // Orders that have been in their status longer than the dwell time (OrderFulfillmentService)
+    @Index(name = "idx_order_updated_at", columnList = "updated_at")
 })
 @Getter
 @Setter
@@ -26,7 +33,9 @@ public class Order {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @Column(name = "order_number", nullable = false, unique = true)
+    // Unique across all partitions through the order_numbers table (OrderNumberRegistry): a
+    // partitioned orders table can only enforce uniqueness together with created_at
+    @Column(name = "order_number", nullable = false)
     private String orderNumber; // Unique order identifier
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -45,8 +54,8 @@ public class Order {
     @Column(name = "total_amount", nullable = false)
     private BigDecimal totalAmount;
 
-    @Column(name = "created_at", updatable = false)
-    private LocalDateTime createdAt;
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt; // Monthly range partition key
 
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
@@ -9,7 +9,9 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = TableNames.ORDER_ITEMS)
+@Table(name = TableNames.ORDER_ITEMS, indexes = {
+    @Index(name = "idx_order_item_order_id", columnList = "order_id")
+})
 @Getter
 @Setter
 @Builder
@@ -21,8 +23,9 @@ public class OrderItem {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // No database FK: orders is partitioned on (id, created_at), so id alone can't be referenced
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "order_id", nullable = false)
+    @JoinColumn(name = "order_id", nullable = false, foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Order order;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -38,12 +41,13 @@ public class OrderItem {
     @Column(name = "subtotal", nullable = false)
     private BigDecimal subtotal; // quantity * unitPrice
 
-    @Column(name = "created_at", updatable = false)
-    private LocalDateTime createdAt;
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt; // Partition key; same as the order's
 
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        // Order is persisted first, so items land in the same monthly partition as their order
+        createdAt = order != null && order.getCreatedAt() != null ? order.getCreatedAt() : LocalDateTime.now();
     }
 }
 
@@ -6,6 +6,33 @@ public enum OrderStatus {
     PROCESSING,
     SHIPPED,
     DELIVERED,
-    CANCELLED
-}
+    CANCELLED;
+
+    /**
+     * Next fulfillment step, or null once the order is delivered or cancelled
+     */
+    public OrderStatus next() {
+        return switch (this) {
+            case PENDING -> CONFIRMED;
+            case CONFIRMED -> PROCESSING;
+            case PROCESSING -> SHIPPED;
+            case SHIPPED -> DELIVERED;
+            case DELIVERED, CANCELLED -> null;
+        };
+    }
+
+    public boolean isCancellable() {
+        return this == PENDING || this == CONFIRMED || this == PROCESSING;
+    }
 
+    /**
+     * Paid for and not cancelled - the orders whose totals make up revenue
+     */
+    public boolean countsAsRevenue() {
+        return this == CONFIRMED || this == PROCESSING || this == SHIPPED || this == DELIVERED;
+    }
+
+    public boolean canTransitionTo(OrderStatus target) {
+        return target == next() || (target == CANCELLED && isCancellable());
+    }
+}
@@ -0,0 +1,38 @@
+package com.bookstore.domain.outbox;
+
+import com.bookstore.constants.TableNames;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Kafka event written in the same transaction as the change it describes
+ * Rows are inserted by OutboxService and deleted by OutboxRelayJob once the broker acknowledged them;
+ * id order is publish order
+ */
+@Entity
+@Table(name = TableNames.OUTBOX_EVENTS)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    @Column(name = "event_key")
+    private String eventKey;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
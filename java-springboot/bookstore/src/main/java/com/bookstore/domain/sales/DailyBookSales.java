@@ -0,0 +1,50 @@
+package com.bookstore.domain.sales;
+
+import com.bookstore.constants.TableNames;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Paid (not cancelled) sales of one book on one day, rebuilt by SalesRollupJob
+ * The primary key (sale_date, book_id) serves date-range reports
+ */
+@Entity
+@Table(name = TableNames.DAILY_BOOK_SALES)
+@IdClass(DailyBookSales.Key.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyBookSales {
+
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Id
+    @Column(name = "book_id")
+    private Long bookId;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    // Orders containing the book that day
+    @Column(nullable = false)
+    private Long orders;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate saleDate;
+        private Long bookId;
+    }
+}
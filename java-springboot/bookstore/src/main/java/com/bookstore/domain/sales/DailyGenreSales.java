@@ -0,0 +1,47 @@
+package com.bookstore.domain.sales;
+
+import com.bookstore.constants.TableNames;
+import com.bookstore.domain.book.Genre;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * daily_book_sales summed per genre, rebuilt with it by SalesRollupJob
+ */
+@Entity
+@Table(name = TableNames.DAILY_GENRE_SALES)
+@IdClass(DailyGenreSales.Key.class)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DailyGenreSales {
+
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(name = "genre")
+    private Genre genre;
+
+    @Column(nullable = false)
+    private Long units;
+
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private LocalDate saleDate;
+        private Genre genre;
+    }
+}
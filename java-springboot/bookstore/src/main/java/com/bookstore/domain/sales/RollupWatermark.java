@@ -0,0 +1,33 @@
+package com.bookstore.domain.sales;
+
+import com.bookstore.constants.TableNames;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * How far a rollup has consumed its source
+ * txWatermark is a transaction id horizon (xid8 as text): every change recorded in the order
+ * change log by a transaction below it is aggregated. Null means nothing is, e.g. after the
+ * rollup was disabled. watermark is when it last advanced.
+ */
+@Entity
+@Table(name = TableNames.ROLLUP_WATERMARKS)
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RollupWatermark {
+
+    @Id
+    @Column(name = "name")
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDateTime watermark;
+
+    @Column(name = "tx_watermark")
+    private String txWatermark;
+}
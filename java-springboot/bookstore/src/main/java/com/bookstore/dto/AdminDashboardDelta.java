@@ -0,0 +1,28 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * What changed on the admin dashboard since the previous delta (see AdminDashboardFeedService)
+ * Carries current values rather than increments, so applying one twice or missing one
+ * never leaves a client wrong for longer than the next change
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AdminDashboardDelta {
+    // Current stats; null when none of them changed
+    private AdminDashboardResponse.DashboardStats stats;
+    // Orders created or moved to another status, oldest change first; replace by orderNumber
+    private List<AdminDashboardResponse.RecentOrder> orders;
+    // New stock ledger entries, oldest first
+    private List<AdminDashboardResponse.StockHistory> stockChanges;
+    private LocalDateTime asOf;
+}
@@ -8,6 +8,7 @@ import lombok.NoArgsConstructor;
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Data
 @Builder
@@ -18,6 +19,24 @@ public class AdminDashboardResponse {
     private List<LowStockBook> lowStockBooks;
     private List<RecentOrder> recentOrders;
     private List<StockHistory> stockHistory;
+    // Section name -> whether it is current, a previous value (STALE) or missing
+    private Map<String, SectionStatus> sections;
+
+    public enum SectionState {
+        FRESH,
+        STALE,
+        UNAVAILABLE
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SectionStatus {
+        private SectionState state;
+        // When the returned value was computed; null if UNAVAILABLE
+        private LocalDateTime asOf;
+    }
 
     @Data
     @Builder
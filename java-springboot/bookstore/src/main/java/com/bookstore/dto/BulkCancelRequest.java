@@ -0,0 +1,12 @@
+package com.bookstore.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class BulkCancelRequest {
+    @NotEmpty(message = "Order numbers cannot be empty")
+    private List<String> orderNumbers;
+}
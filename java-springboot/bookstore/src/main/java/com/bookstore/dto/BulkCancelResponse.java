@@ -0,0 +1,21 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class BulkCancelResponse {
+    private int requested;
+    private int cancelled;
+    private List<String> skipped; // Unknown, already cancelled, or already shipped/delivered
+    private int chunks;
+    private long durationMs;
+    private double ordersPerSecond;
+}
@@ -9,16 +9,19 @@ import java.math.BigDecimal;
 import java.util.List;
 
 @Data
-@Builder
+@Builder(toBuilder = true)
 @NoArgsConstructor
 @AllArgsConstructor
 public class CartResponse {
     private Long cartId;
     private Long userId;
     private Boolean isActive;
+    private Long version; // Send back as cartVersion on the next edit
     private List<CartItemResponse> items;
     private BigDecimal totalAmount;
     private int totalItems;
+    private boolean merged; // True when a stale edit was merged with changes from another device
+    private List<Long> conflictingBookIds; // On a 409: books both sides changed differently since cartVersion
 
     @Data
     @Builder
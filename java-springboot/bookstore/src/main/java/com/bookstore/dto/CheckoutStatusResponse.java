@@ -0,0 +1,29 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CheckoutStatusResponse {
+    private String orderNumber;
+    private Long userId;
+    private Status status;
+    private String error; // Set when FAILED
+    private OrderResponse order; // Set when COMPLETED
+    private LocalDateTime updatedAt;
+
+    public enum Status {
+        QUEUED, COMPLETED, FAILED
+    }
+
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
@@ -14,6 +14,13 @@ public class EditCartRequest {
     @Valid
     private List<CartItem> items;
 
+    // Cart version the client last saw; null overwrites unconditionally
+    private Long cartVersion;
+
+    // Items of the cart at cartVersion, which the edit started from; without them a stale edit is a conflict
+    @Valid
+    private List<CartItem> baseItems;
+
     @Data
     public static class CartItem {
         @NotNull(message = "Book ID is required")
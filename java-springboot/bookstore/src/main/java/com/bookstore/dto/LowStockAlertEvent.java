@@ -0,0 +1,27 @@
+package com.bookstore.dto;
+
+import com.bookstore.domain.book.LowStockAlert;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published on LOW_STOCK_ALERT and pushed to admin SSE clients when a book's stock falls
+ * to the threshold (LOW) or to zero (OUT_OF_STOCK)
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LowStockAlertEvent {
+    private Long bookId;
+    private String title;
+    private LowStockAlert.Level level;
+    private Integer previousStock;
+    private Integer stock;
+    private Integer threshold;
+    private LocalDateTime alertedAt;
+}
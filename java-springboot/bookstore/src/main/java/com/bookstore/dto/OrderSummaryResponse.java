@@ -0,0 +1,25 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Order history entry; items are only returned by GET /api/orders/{orderNumber}
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OrderSummaryResponse {
+    private Long orderId;
+    private String orderNumber;
+    private OrderResponse.OrderStatus status;
+    private BigDecimal totalAmount;
+    private Long itemCount;
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,23 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Sales of one period (day, ISO week or month starting at periodStart), or of one genre over the range
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SalesPeriodResponse {
+    private LocalDate periodStart;
+    private String genre;
+    private Long units;
+    private BigDecimal revenue;
+}
@@ -0,0 +1,28 @@
+package com.bookstore.dto;
+
+import com.bookstore.domain.book.StockChangeReason;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * One stock_ledger entry; stockAfter is null for checkouts of sharded books
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockMovementResponse {
+    private Long id;
+    private Long bookId;
+    private String bookTitle;
+    private StockChangeReason reason;
+    private String reference;
+    private Integer delta;
+    private Integer previousStock;
+    private Integer stockAfter;
+    private LocalDateTime createdAt;
+}
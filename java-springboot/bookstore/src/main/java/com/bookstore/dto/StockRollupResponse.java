@@ -0,0 +1,25 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Stock movements of one time bucket, for charts
+ * closingStock is the last known stock in the bucket and only set for a single book
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StockRollupResponse {
+    private LocalDateTime bucketStart;
+    private Long movements;
+    private Long unitsIn;
+    private Long unitsOut;
+    private Long netDelta;
+    private Integer closingStock;
+}
@@ -0,0 +1,21 @@
+package com.bookstore.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopSellerResponse {
+    private Long bookId;
+    private String title;
+    private String genre;
+    private Long units;
+    private BigDecimal revenue;
+    private Long orders;
+}
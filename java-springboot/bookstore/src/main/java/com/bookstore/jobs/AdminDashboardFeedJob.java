@@ -0,0 +1,55 @@
+package com.bookstore.jobs;
+
+import com.bookstore.services.AdminDashboardFeedService;
+import com.bookstore.services.OrderChangeService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * Drives the live admin dashboard feed (see AdminDashboardFeedService)
+ * Runs on every instance; only one of them does the reads in any given tick
+ * Also prunes the order change log the feed follows (see OrderChangeService)
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AdminDashboardFeedJob {
+
+    private final AdminDashboardFeedService adminDashboardFeedService;
+    private final OrderChangeService orderChangeService;
+
+    @Value("${admin.dashboard.feed.enabled:true}")
+    private boolean enabled;
+
+    @Value("${admin.dashboard.feed.change-retention:PT1H}")
+    private Duration changeRetention;
+
+    @Scheduled(fixedDelayString = "${admin.dashboard.feed.interval:PT2S}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            adminDashboardFeedService.markWatched();
+            adminDashboardFeedService.tick();
+        } catch (RuntimeException e) {
+            // Clients keep what they have; the next tick picks up from the stored cursors
+            log.warn("Admin dashboard feed tick failed", e);
+        }
+    }
+
+    // Runs even with the feed disabled, since writers keep recording changes
+    @Scheduled(fixedDelayString = "PT10M", initialDelayString = "PT1M")
+    public void pruneChanges() {
+        try {
+            orderChangeService.prune(changeRetention);
+        } catch (RuntimeException e) {
+            log.warn("Pruning order changes failed", e);
+        }
+    }
+}
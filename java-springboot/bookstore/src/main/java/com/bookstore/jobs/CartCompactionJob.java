@@ -0,0 +1,157 @@
+package com.bookstore.jobs;
+
+import com.google.common.util.concurrent.RateLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves inactive carts and their items into carts_archive / cart_items_archive
+ * CartService.deactivateCart leaves one dead cart per checkout, so without this
+ * carts, cart_items and idx_cart_user_id_active grow forever
+ *
+ * Each batch is a single statement (DELETE ... RETURNING feeding INSERT), so it is
+ * atomic without holding a transaction across batches. Batches are rate-limited
+ * to keep I/O flat; active carts are never touched.
+ *
+ * A run paces itself for minutes, so it goes to its own thread instead of holding the
+ * shared scheduler thread that the outbox relay, SSE heartbeats etc. run on; a tick that
+ * finds the previous run still going is skipped.
+ */
+@Component
+@Slf4j
+public class CartCompactionJob {
+
+    // Archive one batch of inactive carts older than the cutoff; returns rows moved per table
+    private static final String COMPACT_BATCH_SQL = """
+            WITH batch AS (
+                SELECT id FROM carts
+                WHERE is_active = false AND updated_at < ?
+                ORDER BY id
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+            ), moved_items AS (
+                DELETE FROM cart_items ci USING batch b
+                WHERE ci.cart_id = b.id
+                RETURNING ci.id, ci.cart_id, ci.book_id, ci.quantity, ci.book_title, ci.unit_price, ci.created_at
+            ), archived_items AS (
+                INSERT INTO cart_items_archive (id, cart_id, book_id, quantity, book_title, unit_price, created_at)
+                SELECT id, cart_id, book_id, quantity, book_title, unit_price, created_at FROM moved_items
+                RETURNING 1
+            ), moved_carts AS (
+                DELETE FROM carts c USING batch b
+                WHERE c.id = b.id
+                RETURNING c.id, c.user_id, c.total_amount, c.total_items, c.created_at, c.updated_at
+            ), archived_carts AS (
+                INSERT INTO carts_archive (id, user_id, total_amount, total_items, created_at, updated_at, archived_at)
+                SELECT id, user_id, total_amount, total_items, created_at, updated_at, now() FROM moved_carts
+                RETURNING 1
+            )
+            SELECT (SELECT count(*) FROM archived_carts) AS carts,
+                   (SELECT count(*) FROM archived_items) AS items
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RateLimiter batchRateLimiter;
+    private final Counter cartsReclaimed;
+    private final Counter itemsReclaimed;
+    private final Timer batchTimer;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(
+            Thread.ofVirtual().name("cart-compaction").factory());
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${cart.compaction.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cart.compaction.retention:7d}")
+    private Duration retention;
+
+    @Value("${cart.compaction.batch-size:500}")
+    private int batchSize;
+
+    @Value("${cart.compaction.max-batches-per-run:200}")
+    private int maxBatchesPerRun;
+
+    public CartCompactionJob(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${cart.compaction.batches-per-second:2}") double batchesPerSecond
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchRateLimiter = RateLimiter.create(batchesPerSecond);
+        this.cartsReclaimed = Counter.builder("bookstore.cart.compaction.rows")
+                .tag("table", "carts")
+                .description("Inactive carts moved to carts_archive")
+                .register(meterRegistry);
+        this.itemsReclaimed = Counter.builder("bookstore.cart.compaction.rows")
+                .tag("table", "cart_items")
+                .description("Cart items moved to cart_items_archive")
+                .register(meterRegistry);
+        this.batchTimer = Timer.builder("bookstore.cart.compaction.batch")
+                .description("Time spent per compaction batch")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${cart.compaction.interval:PT15M}", initialDelayString = "${cart.compaction.initial-delay:PT1M}")
+    public void compact() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        worker.execute(() -> {
+            try {
+                compactBatches();
+            } catch (RuntimeException e) {
+                log.error("Cart compaction failed", e);
+            } finally {
+                running.set(false);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+
+    private void compactBatches() {
+        Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(retention));
+        long totalCarts = 0;
+        long totalItems = 0;
+
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            batchRateLimiter.acquire();
+
+            Map<String, Object> result = batchTimer.record(() ->
+                    jdbcTemplate.queryForMap(COMPACT_BATCH_SQL, cutoff, batchSize));
+            long carts = ((Number) result.get("carts")).longValue();
+            long items = ((Number) result.get("items")).longValue();
+
+            cartsReclaimed.increment(carts);
+            itemsReclaimed.increment(items);
+            totalCarts += carts;
+            totalItems += items;
+
+            if (carts < batchSize) {
+                break;
+            }
+        }
+
+        if (totalCarts > 0) {
+            log.info("Cart compaction archived {} carts and {} cart items older than {}", totalCarts, totalItems, cutoff);
+        }
+    }
+}
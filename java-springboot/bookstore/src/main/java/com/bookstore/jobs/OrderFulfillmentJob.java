@@ -0,0 +1,74 @@
+package com.bookstore.jobs;
+
+import com.bookstore.domain.order.OrderStatus;
+import com.bookstore.services.OrderFulfillmentService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Drives orders through CONFIRMED -> PROCESSING -> SHIPPED -> DELIVERED
+ * An order advances once it has spent the configured time in its current status;
+ * each stage is drained in chunks until nothing is ready or the per-run cap is hit
+ *
+ * Off by default (order.fulfillment.enabled): it stands in for shipment events and
+ * should only run where none exist
+ */
+@Component
+@Slf4j
+public class OrderFulfillmentJob {
+
+    private final OrderFulfillmentService orderFulfillmentService;
+    private final Map<OrderStatus, Duration> dwellTimes;
+
+    @Value("${order.fulfillment.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.fulfillment.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order.fulfillment.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    public OrderFulfillmentJob(
+            OrderFulfillmentService orderFulfillmentService,
+            @Value("${order.fulfillment.dwell.confirmed:PT5M}") Duration confirmedDwell,
+            @Value("${order.fulfillment.dwell.processing:PT1H}") Duration processingDwell,
+            @Value("${order.fulfillment.dwell.shipped:P2D}") Duration shippedDwell
+    ) {
+        this.orderFulfillmentService = orderFulfillmentService;
+        this.dwellTimes = Map.of(
+                OrderStatus.CONFIRMED, confirmedDwell,
+                OrderStatus.PROCESSING, processingDwell,
+                OrderStatus.SHIPPED, shippedDwell
+        );
+    }
+
+    @Scheduled(fixedDelayString = "${order.fulfillment.interval:PT30S}", initialDelayString = "${order.fulfillment.initial-delay:PT30S}")
+    public void advance() {
+        if (!enabled) {
+            return;
+        }
+
+        // Latest stage first, so one run never pushes an order through two stages
+        for (OrderStatus from : new OrderStatus[]{OrderStatus.SHIPPED, OrderStatus.PROCESSING, OrderStatus.CONFIRMED}) {
+            LocalDateTime cutoff = LocalDateTime.now().minus(dwellTimes.get(from));
+            int total = 0;
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                int moved = orderFulfillmentService.advanceReady(from, cutoff, batchSize);
+                total += moved;
+                if (moved < batchSize) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                log.info("Advanced {} orders from {} to {}", total, from, from.next());
+            }
+        }
+    }
+}
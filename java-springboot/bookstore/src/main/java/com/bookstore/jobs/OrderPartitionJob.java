@@ -0,0 +1,211 @@
+package com.bookstore.jobs;
+
+import com.bookstore.constants.TableNames;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Monthly range partitioning of orders and order_items on created_at
+ *
+ * The schema comes from Hibernate (ddl-auto=update), which creates plain tables, so the
+ * one-time conversion runs here: each table is renamed to <table>_legacy and a partitioned
+ * table with the same columns takes its place, with the legacy table attached as the
+ * partition for everything before next month (orders keep arriving during the current one). Primary keys become (id, created_at),
+ * ids keep coming from a sequence that continues after the legacy ids, and the partitioned
+ * unique key is (order_number, created_at); numbers stay globally unique through OrderNumberRegistry.
+ *
+ * On every run the job creates partitions for the current and next premake-months months
+ * (skipping months the legacy partition still covers) and, when retention-months is set, detaches (never drops) partitions older than that so
+ * they can be archived.
+ */
+@Component
+@Slf4j
+public class OrderPartitionJob {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern LEGACY_BOUND = Pattern.compile("TO \\('(\\d{4}-\\d{2}-\\d{2})");
+
+    // Indexes on the partitioned parents, mirroring the entity mappings plus the partitioned unique key
+    private static final List<String> ORDER_INDEXES = List.of(
+            "CREATE UNIQUE INDEX IF NOT EXISTS idx_order_number_created_at ON orders (order_number, created_at)",
+            "CREATE INDEX IF NOT EXISTS idx_order_user_created_at ON orders (user_id, created_at DESC, id DESC)",
+            "CREATE INDEX IF NOT EXISTS idx_order_status ON orders (status)",
+            "CREATE INDEX IF NOT EXISTS idx_order_created_at ON orders (created_at)",
+            "CREATE INDEX IF NOT EXISTS idx_order_number_user_id ON orders (order_number, user_id)",
+            "CREATE INDEX IF NOT EXISTS idx_order_updated_at ON orders (updated_at)"
+    );
+
+    private static final List<String> ORDER_ITEM_INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_order_item_order_id ON order_items (order_id)"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${order.partitioning.enabled:false}")
+    private boolean enabled;
+
+    @Value("${order.partitioning.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${order.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    public OrderPartitionJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        if (!enabled) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            // One instance converts; the others wait here and then find partitioned tables
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('order-partitioning'))");
+            if (!isPartitioned(TableNames.ORDERS)) {
+                convertToPartitioned();
+            }
+        });
+        maintain();
+    }
+
+    @Scheduled(cron = "${order.partitioning.cron:0 0 3 * * *}")
+    public void maintain() {
+        if (!enabled || !isPartitioned(TableNames.ORDERS)) {
+            return;
+        }
+
+        YearMonth current = YearMonth.now();
+        for (int offset = 0; offset <= premakeMonths; offset++) {
+            YearMonth month = current.plusMonths(offset);
+            createPartition(TableNames.ORDERS, month);
+            createPartition(TableNames.ORDER_ITEMS, month);
+        }
+
+        if (retentionMonths > 0) {
+            YearMonth oldestKept = current.minusMonths(retentionMonths);
+            detachPartitionsBefore(TableNames.ORDERS, oldestKept);
+            detachPartitionsBefore(TableNames.ORDER_ITEMS, oldestKept);
+        }
+    }
+
+    private void convertToPartitioned() {
+        // The current month's rows already exist, so they stay in the legacy partition
+        LocalDate cutoff = YearMonth.now().plusMonths(1).atDay(1);
+        log.info("Converting {} and {} to monthly partitions (legacy rows before {})",
+                TableNames.ORDERS, TableNames.ORDER_ITEMS, cutoff);
+
+        jdbcTemplate.execute("LOCK TABLE orders, order_items IN ACCESS EXCLUSIVE MODE");
+
+        // Partition keys must be set on every row
+        jdbcTemplate.update("UPDATE orders SET created_at = now() WHERE created_at IS NULL");
+        jdbcTemplate.update("UPDATE order_items oi SET created_at = o.created_at FROM orders o " +
+                "WHERE oi.order_id = o.id AND oi.created_at IS NULL");
+
+        convertTable(TableNames.ORDERS, cutoff, ORDER_INDEXES);
+        convertTable(TableNames.ORDER_ITEMS, cutoff, ORDER_ITEM_INDEXES);
+
+        log.info("Partitioned {} and {}", TableNames.ORDERS, TableNames.ORDER_ITEMS);
+    }
+
+    private void convertTable(String table, LocalDate cutoff, List<String> indexes) {
+        String legacy = table + "_legacy";
+        String sequence = table + "_id_seq";
+
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+
+        jdbcTemplate.execute("ALTER TABLE " + table + " RENAME TO " + legacy);
+        // Free the names for the parent: constraints and indexes keep theirs across a rename
+        jdbcTemplate.queryForList(
+                "SELECT conname FROM pg_constraint WHERE conrelid = ?::regclass AND contype IN ('p', 'u')",
+                String.class, legacy
+        ).forEach(name -> jdbcTemplate.execute(
+                "ALTER TABLE " + legacy + " RENAME CONSTRAINT " + name + " TO " + name + "_legacy"));
+        jdbcTemplate.queryForList(
+                "SELECT indexname FROM pg_indexes WHERE tablename = ? AND indexname NOT LIKE '%\\_legacy'",
+                String.class, legacy
+        ).forEach(name -> jdbcTemplate.execute("ALTER INDEX " + name + " RENAME TO " + name + "_legacy"));
+
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        jdbcTemplate.execute("ALTER TABLE " + legacy + " ALTER COLUMN created_at SET NOT NULL");
+
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + sequence);
+        jdbcTemplate.queryForObject("SELECT setval('" + sequence + "', ?)", Long.class, Math.max(maxId, 1));
+
+        jdbcTemplate.execute("CREATE TABLE " + table + " (LIKE " + legacy + " INCLUDING DEFAULTS) " +
+                "PARTITION BY RANGE (created_at)");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ALTER COLUMN id SET DEFAULT nextval('" + sequence + "')");
+        jdbcTemplate.execute("ALTER SEQUENCE " + sequence + " OWNED BY " + table + ".id");
+        jdbcTemplate.execute("ALTER TABLE " + table + " ADD PRIMARY KEY (id, created_at)");
+        indexes.forEach(jdbcTemplate::execute);
+
+        // Validates the range once; matching legacy indexes are built or attached here
+        jdbcTemplate.execute("ALTER TABLE " + table + " ATTACH PARTITION " + legacy +
+                " FOR VALUES FROM (MINVALUE) TO ('" + cutoff + "')");
+    }
+
+    private void createPartition(String table, YearMonth month) {
+        LocalDate legacyEnd = legacyUpperBound(table);
+        if (legacyEnd != null && month.atDay(1).isBefore(legacyEnd)) {
+            return;
+        }
+        String partition = table + "_p" + month.format(SUFFIX);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + table +
+                " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    private void detachPartitionsBefore(String table, YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = ?::regclass AND c.relname LIKE ?
+                """, String.class, table, table + "\\_p%");
+
+        for (String partition : partitions) {
+            YearMonth month = YearMonth.parse(partition.substring(table.length() + 2), SUFFIX);
+            if (month.isBefore(oldestKept)) {
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+                log.info("Detached partition {} (older than {} months)", partition, retentionMonths);
+            }
+        }
+    }
+
+    /**
+     * Exclusive upper bound of the <table>_legacy partition, or null if it isn't attached
+     */
+    private LocalDate legacyUpperBound(String table) {
+        List<String> bounds = jdbcTemplate.queryForList("""
+                SELECT pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = ?::regclass AND c.relname = ?
+                """, String.class, table, table + "_legacy");
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        // FOR VALUES FROM (MINVALUE) TO ('yyyy-MM-dd 00:00:00')
+        Matcher matcher = LEGACY_BOUND.matcher(bounds.get(0));
+        return matcher.find() ? LocalDate.parse(matcher.group(1)) : null;
+    }
+
+    private boolean isPartitioned(String table) {
+        Boolean partitioned = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+                Boolean.class, table);
+        return Boolean.TRUE.equals(partitioned);
+    }
+}
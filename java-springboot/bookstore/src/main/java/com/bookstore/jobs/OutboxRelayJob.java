@@ -0,0 +1,119 @@
+package com.bookstore.jobs;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes outbox_events to Kafka in id order and deletes what the broker acknowledged
+ *
+ * One relay runs at a time across instances (transaction-scoped advisory lock), so events
+ * sharing a key reach their partition in commit order. A batch is sent without waiting per
+ * record, then awaited as a whole; if any send fails nothing is deleted and the batch is
+ * retried on the next tick (at-least-once - consumers must tolerate duplicates).
+ */
+@Component
+@Slf4j
+public class OutboxRelayJob {
+
+    // Arbitrary constant identifying the relay's advisory lock
+    private static final long RELAY_LOCK_ID = 0x0B0C_0001L;
+
+    private static final String SELECT_BATCH_SQL =
+            "SELECT id, topic, event_key, payload FROM outbox_events ORDER BY id LIMIT ?";
+
+    private record Event(long id, String topic, String key, String payload) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer batchTimer;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.send-timeout:PT10S}")
+    private Duration sendTimeout;
+
+    public OutboxRelayJob(
+            JdbcTemplate jdbcTemplate,
+            KafkaTemplate<String, String> kafkaTemplate,
+            TransactionTemplate transactionTemplate,
+            MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.kafkaTemplate = kafkaTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.batchTimer = Timer.builder("bookstore.outbox.relay.batch")
+                .description("Time to publish and delete one batch of outbox events")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval:PT0.2S}")
+    public void relay() {
+        try {
+            // Keep draining while batches come back full
+            int published;
+            do {
+                published = batchTimer.record(() -> transactionTemplate.execute(status -> relayBatch()));
+            } while (published == batchSize);
+        } catch (RuntimeException e) {
+            log.warn("Outbox relay failed, retrying on next tick: {}", e.getMessage());
+        }
+    }
+
+    private int relayBatch() {
+        Boolean locked = jdbcTemplate.queryForObject("SELECT pg_try_advisory_xact_lock(?)", Boolean.class, RELAY_LOCK_ID);
+        if (!Boolean.TRUE.equals(locked)) {
+            return 0; // Another instance is relaying
+        }
+
+        List<Event> events = jdbcTemplate.query(SELECT_BATCH_SQL, (rs, rowNum) -> new Event(
+                rs.getLong("id"),
+                rs.getString("topic"),
+                rs.getString("event_key"),
+                rs.getString("payload")
+        ), batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        List<CompletableFuture<?>> sends = new ArrayList<>(events.size());
+        for (Event event : events) {
+            sends.add(kafkaTemplate.send(event.topic(), event.key(), event.payload()));
+        }
+        kafkaTemplate.flush();
+
+        try {
+            CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new))
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while publishing outbox events", e);
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to publish outbox batch of " + events.size(), e);
+        }
+
+        List<Object[]> ids = events.stream().map(event -> new Object[]{event.id()}).toList();
+        jdbcTemplate.batchUpdate("DELETE FROM outbox_events WHERE id = ?", ids);
+
+        events.forEach(event -> meterRegistry.counter("bookstore.outbox.published", "topic", event.topic()).increment());
+        log.debug("Relayed {} outbox events", events.size());
+        return events.size();
+    }
+}
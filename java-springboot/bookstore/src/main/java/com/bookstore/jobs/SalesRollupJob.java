@@ -0,0 +1,150 @@
+package com.bookstore.jobs;
+
+import com.bookstore.services.OrderChangeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Keeps daily_book_sales and daily_genre_sales up to date from orders / order_items
+ *
+ * Incremental over the order change log (order_changes, see OrderChangeService) in commit
+ * order: each run reads the changes recorded by transactions between the previous run's
+ * horizon and the current one, finds the days (by order created_at) of those orders and
+ * rebuilds those days completely, so a cancellation or fulfillment step lands in the right day
+ * and re-running a day is harmless. Timestamps can't be used for this: updated_at is stamped
+ * before commit (and by different clocks), so a slow transaction could commit behind the
+ * watermark and be skipped for good. The watermark only moves after every dirty day is rebuilt;
+ * a run that dies part-way simply redoes those days. Without a watermark (first run, or after
+ * the rollup was disabled) every day with orders is rebuilt once.
+ */
+@Component
+@Slf4j
+public class SalesRollupJob {
+
+    public static final String WATERMARK_NAME = "sales";
+
+    // Changes of transactions in [previous horizon, current horizon): all finished, none seen before
+    private static final String DIRTY_DAYS_SQL = """
+            SELECT DISTINCT CAST(o.created_at AS date) AS sale_date
+            FROM order_changes c
+            JOIN orders o ON o.id = c.order_id
+            WHERE c.tx_id >= CAST(? AS xid8) AND c.tx_id < CAST(? AS xid8)
+            ORDER BY sale_date
+            """;
+
+    private static final String ALL_DAYS_SQL =
+            "SELECT DISTINCT CAST(created_at AS date) AS sale_date FROM orders ORDER BY sale_date";
+
+    // Items are created with (or after) their order, so the order's day bounds the item scan from below
+    private static final String BOOK_SALES_SQL = """
+            INSERT INTO daily_book_sales (sale_date, book_id, units, revenue, orders)
+            SELECT ?, oi.book_id, SUM(oi.quantity), SUM(oi.subtotal), count(DISTINCT oi.order_id)
+            FROM orders o
+            JOIN order_items oi ON oi.order_id = o.id
+            WHERE o.created_at >= ? AND o.created_at < ?
+              AND oi.created_at >= ?
+              AND o.status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED')
+            GROUP BY oi.book_id
+            """;
+
+    private static final String GENRE_SALES_SQL = """
+            INSERT INTO daily_genre_sales (sale_date, genre, units, revenue)
+            SELECT d.sale_date, b.genre, SUM(d.units), SUM(d.revenue)
+            FROM daily_book_sales d
+            JOIN books b ON b.id = d.book_id
+            WHERE d.sale_date = ?
+            GROUP BY d.sale_date, b.genre
+            """;
+
+    // Never moves back when two instances finish out of order
+    private static final String SAVE_WATERMARK_SQL =
+            "INSERT INTO rollup_watermarks (name, watermark, tx_watermark) VALUES (?, now(), ?) " +
+            "ON CONFLICT (name) DO UPDATE SET watermark = EXCLUDED.watermark, tx_watermark = EXCLUDED.tx_watermark " +
+            "WHERE rollup_watermarks.tx_watermark IS NULL " +
+            "OR CAST(rollup_watermarks.tx_watermark AS xid8) < CAST(EXCLUDED.tx_watermark AS xid8)";
+
+    // A disabled rollup must not hold back pruning of the change log (OrderChangeService.prune)
+    private static final String RELEASE_WATERMARK_SQL =
+            "UPDATE rollup_watermarks SET tx_watermark = NULL WHERE name = ? AND tx_watermark IS NOT NULL";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final OrderChangeService orderChangeService;
+    private final Timer dayTimer;
+
+    @Value("${sales.rollup.enabled:true}")
+    private boolean enabled;
+
+    public SalesRollupJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                          OrderChangeService orderChangeService, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.orderChangeService = orderChangeService;
+        this.dayTimer = Timer.builder("bookstore.sales.rollup.day")
+                .description("Time spent rebuilding one day of sales rollups")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${sales.rollup.interval:PT5M}", initialDelayString = "${sales.rollup.initial-delay:PT1M}")
+    public void rollup() {
+        if (!enabled) {
+            jdbcTemplate.update(RELEASE_WATERMARK_SQL, WATERMARK_NAME);
+            return;
+        }
+
+        // Taken before reading: transactions at or above it may still be running and are read next time
+        String horizon = orderChangeService.horizon();
+        String watermark = readWatermark();
+        if (horizon.equals(watermark)) {
+            return;
+        }
+
+        List<LocalDate> days = watermark == null
+                ? jdbcTemplate.queryForList(ALL_DAYS_SQL, LocalDate.class)
+                : jdbcTemplate.queryForList(DIRTY_DAYS_SQL, LocalDate.class, watermark, horizon);
+        for (LocalDate day : days) {
+            dayTimer.record(() -> transactionTemplate.executeWithoutResult(status -> rebuildDay(day)));
+        }
+
+        jdbcTemplate.update(SAVE_WATERMARK_SQL, WATERMARK_NAME, horizon);
+        if (!days.isEmpty()) {
+            log.info("Sales rollup rebuilt {} days ({} to {}), watermark now transaction {}",
+                    days.size(), days.get(0), days.get(days.size() - 1), horizon);
+        }
+    }
+
+    /**
+     * Replaces one day of both rollups; idempotent
+     */
+    private void rebuildDay(LocalDate day) {
+        // Instances rebuilding the same day queue up instead of colliding on the primary keys
+        jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('sales-rollup'))");
+
+        Date saleDate = Date.valueOf(day);
+        Timestamp start = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp end = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+
+        jdbcTemplate.update("DELETE FROM daily_genre_sales WHERE sale_date = ?", saleDate);
+        jdbcTemplate.update("DELETE FROM daily_book_sales WHERE sale_date = ?", saleDate);
+        jdbcTemplate.update(BOOK_SALES_SQL, saleDate, start, end, start);
+        jdbcTemplate.update(GENRE_SALES_SQL, saleDate);
+    }
+
+    // Horizon the last completed run read up to, or null if every day needs rebuilding
+    private String readWatermark() {
+        List<String> rows = jdbcTemplate.queryForList(
+                "SELECT tx_watermark FROM rollup_watermarks WHERE name = ?", String.class, WATERMARK_NAME);
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+}
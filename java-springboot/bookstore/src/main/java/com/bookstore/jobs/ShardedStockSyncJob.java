@@ -0,0 +1,73 @@
+package com.bookstore.jobs;
+
+import com.bookstore.services.CounterService;
+import com.bookstore.services.LowStockAlertService;
+import com.bookstore.services.StockLedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Copies the aggregate of book_stock_shards into books.stock for sharded books
+ * Checkout never touches books.stock for these titles, so this is what keeps
+ * listings, search and the admin dashboard showing the real total. The ledger already
+ * holds these books' movements (without stockAfter), so only the aggregate changes are
+ * checked for low-stock crossings here
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShardedStockSyncJob {
+
+    // Only rewrites rows whose aggregate actually moved; the locked pre-image gives the
+    // zero crossings for books.out_of_stock and the low-stock threshold crossings
+    private static final String SYNC_SQL = """
+            WITH changed AS (
+                SELECT b.id, b.stock AS previous_stock, s.total
+                FROM books b
+                JOIN (SELECT book_id, SUM(stock) AS total FROM book_stock_shards GROUP BY book_id) s ON s.book_id = b.id
+                WHERE b.stock_shards IS NOT NULL AND b.stock <> s.total
+                ORDER BY b.id
+                FOR UPDATE OF b
+            ), synced AS (
+                UPDATE books b
+                SET stock = c.total, version = b.version + 1, updated_at = now()
+                FROM changed c
+                WHERE b.id = c.id
+                RETURNING b.id, c.previous_stock, b.stock
+            )
+            SELECT id, previous_stock, stock FROM synced
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CounterService counterService;
+    private final LowStockAlertService lowStockAlertService;
+
+    @Scheduled(fixedDelayString = "${inventory.shards.sync-interval:PT2S}")
+    public void sync() {
+        int updated = transactionTemplate.execute(status -> {
+            List<StockLedgerService.Movement> changes = jdbcTemplate.query(SYNC_SQL, (rs, rowNum) -> {
+                int stock = rs.getInt("stock");
+                return new StockLedgerService.Movement(rs.getLong("id"), stock - rs.getInt("previous_stock"), stock, null);
+            });
+            if (changes.isEmpty()) {
+                return 0;
+            }
+            long outOfStockDelta = changes.stream()
+                    .mapToLong(change -> CounterService.outOfStockDelta(change.stockAfter() - change.delta(), change.stockAfter()))
+                    .sum();
+            counterService.add(CounterService.BOOKS_OUT_OF_STOCK, outOfStockDelta);
+            lowStockAlertService.detect(changes);
+            return changes.size();
+        });
+        if (updated > 0) {
+            log.debug("Synced aggregate stock for {} sharded books", updated);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.bookstore.jobs;
+
+import com.bookstore.constants.TableNames;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Owns the stock_ledger table (see StockLedgerService)
+ *
+ * The table is range-partitioned by month on created_at, which Hibernate can't create, so it
+ * has no entity and is created here before the application takes traffic. Rows are narrow
+ * (no primary key, reason as a smallint code) and only ever appended. tx_id is the appending
+ * transaction's id, which lets readers follow the ledger in commit order (see StockLedgerService).
+ *
+ * On every run the job creates partitions for the current and next premake-months months and,
+ * when retention-months is set, detaches (never drops) partitions older than that so they can
+ * be archived. A default partition catches rows if maintenance ever falls behind, so a missing
+ * partition never fails a checkout.
+ */
+@Component
+@Slf4j
+public class StockLedgerPartitionJob {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS stock_ledger (
+                id bigserial NOT NULL,
+                book_id bigint NOT NULL,
+                reason smallint NOT NULL,
+                reference varchar(64),
+                delta integer NOT NULL,
+                stock_after integer,
+                created_at timestamp NOT NULL,
+                tx_id xid8 NOT NULL DEFAULT pg_current_xact_id()
+            ) PARTITION BY RANGE (created_at)
+            """;
+
+    // Tables created before tx_id existed; their rows get the migrating transaction's id
+    private static final String ADD_TX_ID_SQL =
+            "ALTER TABLE stock_ledger ADD COLUMN IF NOT EXISTS tx_id xid8 NOT NULL DEFAULT pg_current_xact_id()";
+
+    private static final List<String> INDEXES = List.of(
+            "CREATE INDEX IF NOT EXISTS idx_stock_ledger_book_created_at ON stock_ledger (book_id, created_at)",
+            "CREATE INDEX IF NOT EXISTS idx_stock_ledger_created_at ON stock_ledger (created_at)",
+            "CREATE INDEX IF NOT EXISTS idx_stock_ledger_tx_id ON stock_ledger (tx_id, id)"
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${stock-ledger.partitioning.premake-months:3}")
+    private int premakeMonths;
+
+    @Value("${stock-ledger.partitioning.retention-months:0}")
+    private int retentionMonths;
+
+    public StockLedgerPartitionJob(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Concurrent CREATE ... IF NOT EXISTS can still collide on the catalog
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('stock-ledger-partitioning'))");
+            jdbcTemplate.execute(CREATE_TABLE_SQL);
+            jdbcTemplate.execute(ADD_TX_ID_SQL);
+            INDEXES.forEach(jdbcTemplate::execute);
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TableNames.STOCK_LEDGER + "_default PARTITION OF " +
+                    TableNames.STOCK_LEDGER + " DEFAULT");
+        });
+        maintain();
+    }
+
+    @Scheduled(cron = "${stock-ledger.partitioning.cron:0 15 3 * * *}")
+    public void maintain() {
+        YearMonth current = YearMonth.now();
+        for (int offset = 0; offset <= premakeMonths; offset++) {
+            YearMonth month = current.plusMonths(offset);
+            try {
+                createPartition(month);
+            } catch (RuntimeException e) {
+                // Fails when the default partition already holds rows for this month
+                log.error("Could not create {} partition for {}", TableNames.STOCK_LEDGER, month, e);
+            }
+        }
+
+        if (retentionMonths > 0) {
+            detachPartitionsBefore(current.minusMonths(retentionMonths));
+        }
+    }
+
+    private void createPartition(YearMonth month) {
+        String partition = TableNames.STOCK_LEDGER + "_p" + month.format(SUFFIX);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + partition + " PARTITION OF " + TableNames.STOCK_LEDGER +
+                " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    private void detachPartitionsBefore(YearMonth oldestKept) {
+        String table = TableNames.STOCK_LEDGER;
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = ?::regclass AND c.relname LIKE ?
+                """, String.class, table, table + "\\_p%");
+
+        for (String partition : partitions) {
+            YearMonth month = YearMonth.parse(partition.substring(table.length() + 2), SUFFIX);
+            if (month.isBefore(oldestKept)) {
+                jdbcTemplate.execute("ALTER TABLE " + table + " DETACH PARTITION " + partition);
+                log.info("Detached partition {} (older than {} months)", partition, retentionMonths);
+            }
+        }
+    }
+}
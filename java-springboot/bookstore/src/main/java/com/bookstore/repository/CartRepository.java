@@ -3,6 +3,7 @@ package com.bookstore.repository;
 import com.bookstore.domain.cart.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -21,5 +22,11 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
 
     @Query("SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.items i LEFT JOIN FETCH i.book WHERE c.userId = :userId AND c.isActive = true")
     Optional<Cart> findActiveCartByUserId(@Param("userId") Long userId);
+
+    // Returns 0 if the cart is already inactive, so redelivered deactivations are no-ops
+    @Modifying
+    @Query("UPDATE Cart c SET c.isActive = false, c.version = c.version + 1, c.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE c.id = :cartId AND c.userId = :userId AND c.isActive = true")
+    int deactivateIfActive(@Param("cartId") Long cartId, @Param("userId") Long userId);
 }
 
@@ -1,11 +1,15 @@
 package com.bookstore.repository;
 
 import com.bookstore.domain.order.Order;
+import com.bookstore.domain.order.OrderStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,7 +18,50 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.book WHERE o.orderNumber = :orderNumber")
     Optional<Order> findByOrderNumber(@Param("orderNumber") String orderNumber);
 
-    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.book WHERE o.user.id = :userId ORDER BY o.createdAt DESC")
-    List<Order> findByUserIdOrderByCreatedAtDesc(@Param("userId") Long userId);
+    // Same lookup restricted to the monthly partitions from createdSince on
+    @Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.book " +
+           "WHERE o.orderNumber = :orderNumber AND o.createdAt >= :createdSince")
+    Optional<Order> findByOrderNumberCreatedSince(@Param("orderNumber") String orderNumber,
+                                                  @Param("createdSince") LocalDateTime createdSince);
+
+    /**
+     * Row-locks the order (FOR UPDATE) until the transaction ends; returns its id
+     * Taken before findByOrderNumber* so the fetched status can't change underneath a cancellation
+     * (the fetch joins rule out locking in the same query)
+     */
+    @Query(value = "SELECT id FROM orders WHERE order_number = :orderNumber AND created_at >= :createdSince FOR UPDATE",
+           nativeQuery = true)
+    Optional<Long> lockByOrderNumber(@Param("orderNumber") String orderNumber,
+                                     @Param("createdSince") LocalDateTime createdSince);
+
+    /**
+     * Order history row without items; itemCount is the total quantity
+     */
+    interface OrderSummaryView {
+        Long getId();
+        String getOrderNumber();
+        OrderStatus getStatus();
+        BigDecimal getTotalAmount();
+        Long getItemCount();
+        LocalDateTime getCreatedAt();
+    }
+
+    @Query("SELECT o.id AS id, o.orderNumber AS orderNumber, o.status AS status, o.totalAmount AS totalAmount, " +
+           "(SELECT COALESCE(SUM(i.quantity), 0) FROM OrderItem i WHERE i.order = o) AS itemCount, o.createdAt AS createdAt " +
+           "FROM Order o WHERE o.user.id = :userId ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryView> findSummariesByUserId(@Param("userId") Long userId, Pageable pageable);
+
+    // Keyset continuation: rows strictly after (createdAt, id) in (createdAt DESC, id DESC) order
+    @Query("SELECT o.id AS id, o.orderNumber AS orderNumber, o.status AS status, o.totalAmount AS totalAmount, " +
+           "(SELECT COALESCE(SUM(i.quantity), 0) FROM OrderItem i WHERE i.order = o) AS itemCount, o.createdAt AS createdAt " +
+           "FROM Order o WHERE o.user.id = :userId " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderSummaryView> findSummariesByUserIdAfter(@Param("userId") Long userId,
+                                                      @Param("createdAt") LocalDateTime createdAt,
+                                                      @Param("id") Long id,
+                                                      Pageable pageable);
+
+    boolean existsByOrderNumber(String orderNumber);
 }
 
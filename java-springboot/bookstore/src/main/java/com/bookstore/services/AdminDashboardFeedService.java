@@ -0,0 +1,239 @@
+package com.bookstore.services;
+
+import com.bookstore.dto.AdminDashboardDelta;
+import com.bookstore.dto.AdminDashboardResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Live admin dashboard over SSE
+ *
+ * One producer for the whole cluster: each tick (AdminDashboardFeedJob) the instance that claims
+ * the tick in Redis reads the stats counters, orders changed since its cursor (order_changes, see
+ * OrderChangeService) and stock ledger entries since its cursor, and publishes what changed as one
+ * AdminDashboardDelta on a Redis channel. Every instance forwards it to the admins connected to it,
+ * along with low-stock alerts, so database load per tick is the same for one admin or a hundred.
+ * Cursors are (transaction id, row id) positions and each tick reads up to the snapshot xmin, below
+ * which every transaction has finished, so a slow transaction's changes are picked up whenever it
+ * commits instead of being skipped. Nothing is read while no instance has a subscriber; cursors live
+ * in Redis and expire with the audience, so a new audience starts from now instead of replaying the backlog.
+ * Clients take GET /api/admin/dashboard as the starting point and apply deltas on top.
+ */
+@Service
+@Slf4j
+public class AdminDashboardFeedService implements MessageListener {
+
+    public static final String FEED_CHANNEL = "admin:dashboard:feed";
+
+    private static final String WATCHED_KEY = "admin:dashboard:feed:watched";
+    private static final String TICK_KEY = "admin:dashboard:feed:tick";
+    private static final String STATE_KEY = "admin:dashboard:feed:state";
+    private static final String SSE_TOPIC = "admin-dashboard";
+    private static final Duration SSE_TIMEOUT = Duration.ofMinutes(30);
+    private static final int MAX_ROWS_PER_TICK = 100;
+
+    // Transactions below it have all committed or aborted
+    private static final String HORIZON_SQL = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text";
+
+    // Current state of each recorded order; an order changed twice appears twice
+    private static final String CHANGED_ORDERS_SQL = """
+            SELECT c.tx_id::text AS tx_id, o.id, o.order_number, o.user_id, u.email, o.total_amount, o.status, o.created_at
+            FROM order_changes c
+            JOIN orders o ON o.id = c.order_id
+            JOIN users u ON u.id = o.user_id
+            WHERE (c.tx_id, c.order_id) > (CAST(? AS xid8), ?) AND c.tx_id < CAST(? AS xid8)
+            ORDER BY c.tx_id, c.order_id
+            LIMIT ?
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AdminDashboardService adminDashboardService;
+    private final StockLedgerService stockLedgerService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final SseBroadcaster sseBroadcaster;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Duration interval;
+
+    /**
+     * Where the producer is; stats are the last published values
+     */
+    record FeedState(AdminDashboardResponse.DashboardStats stats,
+                     String ordersTxId, long ordersId,
+                     String stockTxId, long stockId) {
+    }
+
+    private record ChangedOrder(AdminDashboardResponse.RecentOrder order, String txId, long id) {
+    }
+
+    // delta is null when nothing changed
+    private record Step(FeedState next, AdminDashboardDelta delta) {
+    }
+
+    public AdminDashboardFeedService(
+            JdbcTemplate jdbcTemplate,
+            AdminDashboardService adminDashboardService,
+            StockLedgerService stockLedgerService,
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            SseBroadcaster sseBroadcaster,
+            PlatformTransactionManager transactionManager,
+            @Value("${admin.dashboard.feed.interval:PT2S}") Duration interval
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.adminDashboardService = adminDashboardService;
+        this.stockLedgerService = stockLedgerService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.sseBroadcaster = sseBroadcaster;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.interval = interval;
+    }
+
+    public SseEmitter subscribe() {
+        SseEmitter emitter = sseBroadcaster.subscribe(SSE_TOPIC, SSE_TIMEOUT);
+        markWatched();
+        return emitter;
+    }
+
+    /**
+     * Keeps the producer running while this instance has subscribers
+     */
+    public void markWatched() {
+        if (sseBroadcaster.hasSubscribers(SSE_TOPIC)) {
+            redisTemplate.opsForValue().set(WATCHED_KEY, "1", interval.multipliedBy(3));
+        }
+    }
+
+    /**
+     * Publishes one delta if some instance has subscribers and no other instance has taken this tick
+     */
+    public void tick() {
+        if (!Boolean.TRUE.equals(redisTemplate.hasKey(WATCHED_KEY))) {
+            return;
+        }
+        if (!Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(TICK_KEY, "1", interval))) {
+            return;
+        }
+
+        LocalDateTime asOf = LocalDateTime.now();
+        FeedState previous = readState();
+        Step step = readOnlyTransaction.execute(status -> {
+            String horizon = jdbcTemplate.queryForObject(HORIZON_SQL, String.class);
+            AdminDashboardResponse.DashboardStats stats = adminDashboardService.getStats();
+            if (previous == null) {
+                // New audience: it loads the dashboard itself, so start following from here
+                return new Step(new FeedState(stats, horizon, 0, horizon, 0), null);
+            }
+
+            List<ChangedOrder> orders = queryChangedOrders(previous, horizon);
+            List<StockLedgerService.LedgerEntry> movements = stockLedgerService.getMovementsAfter(
+                    previous.stockTxId(), previous.stockId(), horizon, MAX_ROWS_PER_TICK);
+
+            // A full page may have more behind it; otherwise everything below the horizon has been seen
+            ChangedOrder lastOrder = orders.size() == MAX_ROWS_PER_TICK ? orders.get(orders.size() - 1) : null;
+            StockLedgerService.LedgerEntry lastMovement = movements.size() == MAX_ROWS_PER_TICK ? movements.get(movements.size() - 1) : null;
+            FeedState next = new FeedState(stats,
+                    lastOrder != null ? lastOrder.txId() : horizon, lastOrder != null ? lastOrder.id() : 0,
+                    lastMovement != null ? lastMovement.txId() : horizon, lastMovement != null ? lastMovement.movement().getId() : 0);
+
+            boolean statsChanged = !stats.equals(previous.stats());
+            if (!statsChanged && orders.isEmpty() && movements.isEmpty()) {
+                return new Step(next, null);
+            }
+            // Latest state once per order
+            Map<String, AdminDashboardResponse.RecentOrder> changedOrders = new LinkedHashMap<>();
+            orders.forEach(order -> {
+                changedOrders.remove(order.order().getOrderNumber());
+                changedOrders.put(order.order().getOrderNumber(), order.order());
+            });
+            return new Step(next, AdminDashboardDelta.builder()
+                    .stats(statsChanged ? stats : null)
+                    .orders(new ArrayList<>(changedOrders.values()))
+                    .stockChanges(movements.stream()
+                            .map(entry -> AdminDashboardService.toStockHistory(entry.movement()))
+                            .toList())
+                    .asOf(asOf)
+                    .build());
+        });
+
+        writeState(step.next());
+        if (step.delta() != null) {
+            publish(step.delta());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String channel = new String(message.getChannel(), StandardCharsets.UTF_8);
+        String event = LowStockAlertService.ALERT_CHANNEL.equals(channel) ? "low-stock-alert" : "dashboard-delta";
+        // Already JSON; forwarded as is
+        sseBroadcaster.send(SSE_TOPIC, event, new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private List<ChangedOrder> queryChangedOrders(FeedState state, String horizon) {
+        return jdbcTemplate.query(CHANGED_ORDERS_SQL, (rs, rowNum) -> new ChangedOrder(
+                AdminDashboardResponse.RecentOrder.builder()
+                        .orderNumber(rs.getString("order_number"))
+                        .userId(rs.getLong("user_id"))
+                        .userEmail(rs.getString("email"))
+                        .totalAmount(rs.getBigDecimal("total_amount"))
+                        .status(rs.getString("status"))
+                        .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                        .build(),
+                rs.getString("tx_id"),
+                rs.getLong("id")
+        ), state.ordersTxId(), state.ordersId(), horizon, MAX_ROWS_PER_TICK);
+    }
+
+    private void publish(AdminDashboardDelta delta) {
+        try {
+            redisTemplate.convertAndSend(FEED_CHANNEL, objectMapper.writeValueAsString(delta));
+        } catch (IOException e) {
+            log.error("Failed to serialize admin dashboard delta", e);
+        }
+    }
+
+    private FeedState readState() {
+        String json = redisTemplate.opsForValue().get(STATE_KEY);
+        if (json == null) {
+            return null;
+        }
+        try {
+            FeedState state = objectMapper.readValue(json, FeedState.class);
+            // State written before cursors were transaction ids
+            return state.ordersTxId() != null && state.stockTxId() != null ? state : null;
+        } catch (IOException e) {
+            log.warn("Discarding unreadable admin dashboard feed state", e);
+            return null;
+        }
+    }
+
+    private void writeState(FeedState state) {
+        try {
+            // Outlives a few missed ticks, not an empty audience
+            redisTemplate.opsForValue().set(STATE_KEY, objectMapper.writeValueAsString(state), interval.multipliedBy(10));
+        } catch (IOException e) {
+            log.error("Failed to serialize admin dashboard feed state", e);
+        }
+    }
+}
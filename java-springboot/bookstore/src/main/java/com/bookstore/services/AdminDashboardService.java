@@ -1,154 +1,273 @@
 package com.bookstore.services;
 
-import com.bookstore.domain.order.Order;
 import com.bookstore.domain.order.OrderStatus;
 import com.bookstore.dto.AdminDashboardResponse;
-import com.bookstore.repository.BookRepository;
-import com.bookstore.repository.OrderRepository;
-import com.bookstore.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.bookstore.dto.StockMovementResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Pageable;
-import org.springframework.data.domain.Sort;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
+/**
+ * Admin dashboard
+ * Stats are read from counters maintained by the writers themselves (see CounterService), so
+ * they cost one small aggregate over counter_shards however large the tables get; lists are
+ * top-N queries served from indexes (idx_book_stock, idx_order_created_at) that return only
+ * the columns the dashboard shows, and stock history comes from the stock ledger
+ * Sections are independent, so they are fetched in parallel (see getDashboard)
+ */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AdminDashboardService {
 
-    private final BookRepository bookRepository;
-    private final OrderRepository orderRepository;
-    private final UserRepository userRepository;
+    private static final String LOW_STOCK_SQL = """
+            SELECT id, title, stock, updated_at FROM books
+            WHERE stock > 0 AND stock <= ?
+            ORDER BY stock, id
+            LIMIT ?
+            """;
 
-    @Transactional(readOnly = true)
+    private static final String RECENT_ORDERS_SQL = """
+            SELECT o.order_number, o.user_id, u.email, o.total_amount, o.status, o.created_at
+            FROM orders o
+            JOIN users u ON u.id = o.user_id
+            ORDER BY o.created_at DESC
+            LIMIT ?
+            """;
+
+    private static final Duration STOCK_HISTORY_WINDOW = Duration.ofDays(30);
+
+    private static final String SECTION_STATS = "stats";
+    private static final String SECTION_LOW_STOCK = "lowStockBooks";
+    private static final String SECTION_RECENT_ORDERS = "recentOrders";
+    private static final String SECTION_STOCK_HISTORY = "stockHistory";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CounterService counterService;
+    private final StockLedgerService stockLedgerService;
+    private final TransactionTemplate readOnlyTransaction;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    // Query currently running per section; concurrent callers share it instead of starting another
+    private final Map<String, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    // Last successful value per section, served (marked STALE) when a section misses its deadline
+    private final Map<String, SectionSnapshot<?>> lastGood = new ConcurrentHashMap<>();
+
+    @Value("${admin.dashboard.section-timeout:PT0.5S}")
+    private Duration sectionTimeout;
+
+    @Value("${admin.dashboard.statement-timeout:PT5S}")
+    private Duration statementTimeout;
+
+    private record SectionSnapshot<T>(T value, LocalDateTime asOf) {
+    }
+
+    public AdminDashboardService(
+            JdbcTemplate jdbcTemplate,
+            CounterService counterService,
+            StockLedgerService stockLedgerService,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.counterService = counterService;
+        this.stockLedgerService = stockLedgerService;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs every section concurrently on a virtual thread, each in its own read-only transaction,
+     * and waits for each one at most admin.dashboard.section-timeout from the start
+     * A section that is late or fails is replaced by its last good value (STALE) or left empty
+     * (UNAVAILABLE); a late section keeps running under statement-timeout and refreshes that value
+     * At most one query per section runs at a time: callers arriving while it runs wait on the same
+     * one, so a burst of dashboard loads holds at most one connection per section
+     */
     public AdminDashboardResponse getDashboard() {
-        AdminDashboardResponse.DashboardStats stats = buildStats();
-        List<AdminDashboardResponse.LowStockBook> lowStockBooks = getLowStockBooks(10);
-        List<AdminDashboardResponse.RecentOrder> recentOrders = getRecentOrders(10);
-        List<AdminDashboardResponse.StockHistory> stockHistory = getStockHistory(20);
+        long deadline = System.nanoTime() + sectionTimeout.toNanos();
 
+        CompletableFuture<AdminDashboardResponse.DashboardStats> stats = submit(SECTION_STATS, this::buildStats);
+        CompletableFuture<List<AdminDashboardResponse.LowStockBook>> lowStockBooks =
+                submit(SECTION_LOW_STOCK, () -> queryLowStockBooks(10, 10));
+        CompletableFuture<List<AdminDashboardResponse.RecentOrder>> recentOrders =
+                submit(SECTION_RECENT_ORDERS, () -> getRecentOrders(10));
+        CompletableFuture<List<AdminDashboardResponse.StockHistory>> stockHistory =
+                submit(SECTION_STOCK_HISTORY, () -> getStockHistory(20));
+
+        Map<String, AdminDashboardResponse.SectionStatus> sections = new LinkedHashMap<>();
         return AdminDashboardResponse.builder()
-                .stats(stats)
-                .lowStockBooks(lowStockBooks)
-                .recentOrders(recentOrders)
-                .stockHistory(stockHistory)
+                .stats(await(SECTION_STATS, stats, deadline, sections, null))
+                .lowStockBooks(await(SECTION_LOW_STOCK, lowStockBooks, deadline, sections, List.of()))
+                .recentOrders(await(SECTION_RECENT_ORDERS, recentOrders, deadline, sections, List.of()))
+                .stockHistory(await(SECTION_STOCK_HISTORY, stockHistory, deadline, sections, List.of()))
+                .sections(sections)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> submit(String section, Supplier<T> query) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<?> running = inFlight.putIfAbsent(section, result);
+        if (running != null) {
+            return (CompletableFuture<T>) running;
+        }
+
+        // Started only once registered, so it can't finish before it is visible to other callers
+        executor.execute(() -> {
+            try {
+                T value = readOnlyTransaction.execute(status -> {
+                    // Bounds the work a section can leave behind once nobody waits for it
+                    jdbcTemplate.execute("SET LOCAL statement_timeout = " + statementTimeout.toMillis());
+                    return query.get();
+                });
+                lastGood.put(section, new SectionSnapshot<>(value, LocalDateTime.now()));
+                inFlight.remove(section, result);
+                result.complete(value);
+            } catch (RuntimeException e) {
+                inFlight.remove(section, result);
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T await(String section, CompletableFuture<T> future, long deadline,
+                        Map<String, AdminDashboardResponse.SectionStatus> sections, T fallback) {
+        try {
+            T value = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            sections.put(section, sectionStatus(AdminDashboardResponse.SectionState.FRESH, LocalDateTime.now()));
+            return value;
+        } catch (TimeoutException e) {
+            log.warn("Dashboard section {} missed its {} ms deadline", section, sectionTimeout.toMillis());
+        } catch (ExecutionException e) {
+            log.warn("Dashboard section {} failed", section, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        SectionSnapshot<T> previous = (SectionSnapshot<T>) lastGood.get(section);
+        AdminDashboardResponse.SectionState state = previous != null
+                ? AdminDashboardResponse.SectionState.STALE
+                : AdminDashboardResponse.SectionState.UNAVAILABLE;
+        meterRegistry.counter("bookstore.admin.dashboard.degraded", "section", section, "state", state.name()).increment();
+        sections.put(section, sectionStatus(state, previous != null ? previous.asOf() : null));
+        return previous != null ? previous.value() : fallback;
+    }
+
+    private static AdminDashboardResponse.SectionStatus sectionStatus(AdminDashboardResponse.SectionState state, LocalDateTime asOf) {
+        return AdminDashboardResponse.SectionStatus.builder()
+                .state(state)
+                .asOf(asOf)
                 .build();
     }
 
     private AdminDashboardResponse.DashboardStats buildStats() {
-        long totalBooks = bookRepository.count();
-        long totalOrders = orderRepository.count();
-        long totalUsers = userRepository.count();
-
-        // Count out of stock books efficiently
-        long outOfStockBooks = bookRepository.findAll().stream()
-                .filter(book -> book.getStock() == 0)
-                .count();
-
-        // Calculate revenue from delivered/confirmed orders
-        List<Order> allOrders = orderRepository.findAll();
-        BigDecimal totalRevenue = allOrders.stream()
-                .filter(order -> order.getStatus() == OrderStatus.DELIVERED || order.getStatus() == OrderStatus.CONFIRMED)
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        long pendingOrders = allOrders.stream()
-                .filter(order -> order.getStatus() == OrderStatus.PENDING)
-                .count();
-
-        long completedOrders = allOrders.stream()
-                .filter(order -> order.getStatus() == OrderStatus.DELIVERED)
-                .count();
-
-        long cancelledOrders = allOrders.stream()
-                .filter(order -> order.getStatus() == OrderStatus.CANCELLED)
-                .count();
+        Map<String, BigDecimal> counters = counterService.getAll("");
+
+        long totalOrders = 0;
+        for (OrderStatus status : OrderStatus.values()) {
+            totalOrders += count(counters, CounterService.ordersByStatus(status));
+        }
 
         return AdminDashboardResponse.DashboardStats.builder()
-                .totalBooks(totalBooks)
+                .totalBooks(count(counters, CounterService.BOOKS_TOTAL))
                 .totalOrders(totalOrders)
-                .totalUsers(totalUsers)
-                .outOfStockBooks(outOfStockBooks)
-                .totalRevenue(totalRevenue)
-                .pendingOrders(pendingOrders)
-                .completedOrders(completedOrders)
-                .cancelledOrders(cancelledOrders)
+                .totalUsers(count(counters, CounterService.USERS_TOTAL))
+                .outOfStockBooks(count(counters, CounterService.BOOKS_OUT_OF_STOCK))
+                .totalRevenue(counters.getOrDefault(CounterService.ORDERS_REVENUE, BigDecimal.ZERO))
+                .pendingOrders(count(counters, CounterService.ordersByStatus(OrderStatus.PENDING)))
+                .completedOrders(count(counters, CounterService.ordersByStatus(OrderStatus.DELIVERED)))
+                .cancelledOrders(count(counters, CounterService.ordersByStatus(OrderStatus.CANCELLED)))
                 .build();
     }
 
-    private List<AdminDashboardResponse.LowStockBook> getLowStockBooks(int threshold) {
-        return bookRepository.findAll().stream()
-                .filter(book -> book.getStock() > 0 && book.getStock() <= threshold)
-                .sorted((a, b) -> Integer.compare(a.getStock(), b.getStock()))
-                .limit(10)
-                .map(book -> AdminDashboardResponse.LowStockBook.builder()
-                        .bookId(book.getId())
-                        .title(book.getTitle())
-                        .currentStock(book.getStock())
-                        .threshold(threshold)
-                        .lastRestockDate(book.getUpdatedAt())
-                        .build())
-                .collect(Collectors.toList());
+    private static long count(Map<String, BigDecimal> counters, String name) {
+        return counters.getOrDefault(name, BigDecimal.ZERO).longValue();
     }
 
     private List<AdminDashboardResponse.RecentOrder> getRecentOrders(int limit) {
-        // Use pagination to get recent orders efficiently
-        Pageable pageable = PageRequest.of(0, limit, Sort.by(Sort.Direction.DESC, "createdAt"));
-        List<Order> orders = orderRepository.findAll(pageable).getContent();
-
-        return orders.stream()
-                .map(order -> AdminDashboardResponse.RecentOrder.builder()
-                        .orderNumber(order.getOrderNumber())
-                        .userId(order.getUser().getId())
-                        .userEmail(order.getUser().getEmail())
-                        .totalAmount(order.getTotalAmount())
-                        .status(order.getStatus().name())
-                        .createdAt(order.getCreatedAt())
-                        .build())
-                .collect(Collectors.toList());
+        return jdbcTemplate.query(RECENT_ORDERS_SQL, (rs, rowNum) -> AdminDashboardResponse.RecentOrder.builder()
+                .orderNumber(rs.getString("order_number"))
+                .userId(rs.getLong("user_id"))
+                .userEmail(rs.getString("email"))
+                .totalAmount(rs.getBigDecimal("total_amount"))
+                .status(rs.getString("status"))
+                .createdAt(toLocalDateTime(rs.getTimestamp("created_at")))
+                .build(), limit);
     }
 
     private List<AdminDashboardResponse.StockHistory> getStockHistory(int limit) {
-        // Get books that were recently updated (last restock)
-        // This is a simplified version - in production, you'd track stock changes separately
-        return bookRepository.findAll().stream()
-                .filter(book -> book.getUpdatedAt() != null)
-                .sorted((a, b) -> b.getUpdatedAt().compareTo(a.getUpdatedAt()))
-                .limit(limit)
-                .map(book -> AdminDashboardResponse.StockHistory.builder()
-                        .bookId(book.getId())
-                        .bookTitle(book.getTitle())
-                        .newStock(book.getStock())
-                        .updatedAt(book.getUpdatedAt())
-                        // Note: previousStock and delta would require a separate audit table
-                        // For now, we'll just show current stock and update time
-                        .previousStock(null)
-                        .delta(null)
-                        .build())
-                .collect(Collectors.toList());
+        LocalDateTime now = LocalDateTime.now();
+        return stockLedgerService.getMovements(null, now.minus(STOCK_HISTORY_WINDOW), now, limit).stream()
+                .map(AdminDashboardService::toStockHistory)
+                .toList();
+    }
+
+    static AdminDashboardResponse.StockHistory toStockHistory(StockMovementResponse movement) {
+        return AdminDashboardResponse.StockHistory.builder()
+                .bookId(movement.getBookId())
+                .bookTitle(movement.getBookTitle())
+                .previousStock(movement.getPreviousStock())
+                .newStock(movement.getStockAfter())
+                .delta(movement.getDelta())
+                .updatedAt(movement.getCreatedAt())
+                .build();
+    }
+
+    @Transactional(readOnly = true)
+    public AdminDashboardResponse.DashboardStats getStats() {
+        return buildStats();
     }
 
     @Transactional(readOnly = true)
     public List<AdminDashboardResponse.LowStockBook> getLowStockBooks(int threshold, int limit) {
-        return bookRepository.findAll().stream()
-                .filter(book -> book.getStock() > 0 && book.getStock() <= threshold)
-                .sorted((a, b) -> Integer.compare(a.getStock(), b.getStock()))
-                .limit(limit)
-                .map(book -> AdminDashboardResponse.LowStockBook.builder()
-                        .bookId(book.getId())
-                        .title(book.getTitle())
-                        .currentStock(book.getStock())
-                        .threshold(threshold)
-                        .lastRestockDate(book.getUpdatedAt())
-                        .build())
-                .collect(Collectors.toList());
+        return queryLowStockBooks(threshold, limit);
     }
-}
 
+    private List<AdminDashboardResponse.LowStockBook> queryLowStockBooks(int threshold, int limit) {
+        RowMapper<AdminDashboardResponse.LowStockBook> mapper = (rs, rowNum) -> AdminDashboardResponse.LowStockBook.builder()
+                .bookId(rs.getLong("id"))
+                .title(rs.getString("title"))
+                .currentStock(rs.getInt("stock"))
+                .threshold(threshold)
+                .lastRestockDate(toLocalDateTime(rs.getTimestamp("updated_at")))
+                .build();
+        return jdbcTemplate.query(LOW_STOCK_SQL, mapper, threshold, limit);
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,85 @@
+package com.bookstore.services;
+
+import com.bookstore.dto.CartResponse;
+import com.bookstore.dto.CheckoutStatusResponse;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Accepts checkouts for peak traffic without placing the order on the request thread
+ * The request is validated against the cached cart, given its order number up front and
+ * written to CHECKOUT_REQUESTED; CheckoutRequestedConsumer places the orders in batches.
+ * Clients follow progress through CheckoutStatusService (polling or SSE).
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AsyncCheckoutService {
+
+    public static final String CHECKOUT_REQUESTED_TOPIC = "CHECKOUT_REQUESTED";
+
+    private final CartService cartService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final CheckoutStatusService checkoutStatusService;
+    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${checkout.async.send-timeout:PT5S}")
+    private Duration sendTimeout;
+
+    /**
+     * Returns once the broker has the request, so an accepted checkout survives a restart
+     */
+    public CheckoutStatusResponse enqueue(Long userId) {
+        // Cheap pre-check only; stock and prices are verified again when the order is placed
+        CartResponse cart = cartService.getCart(userId);
+        if (cart.getItems() == null || cart.getItems().isEmpty()) {
+            throw new IllegalStateException("Cannot checkout empty cart");
+        }
+
+        String orderNumber = orderNumberGenerator.next();
+        CheckoutStatusResponse status = CheckoutStatusResponse.builder()
+                .orderNumber(orderNumber)
+                .userId(userId)
+                .status(CheckoutStatusResponse.Status.QUEUED)
+                .build();
+        checkoutStatusService.update(status);
+
+        try {
+            String payload = objectMapper.writeValueAsString(Map.of(
+                    "userId", userId,
+                    "orderNumber", orderNumber
+            ));
+            kafkaTemplate.send(CHECKOUT_REQUESTED_TOPIC, userId.toString(), payload)
+                    .get(sendTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (JsonProcessingException | ExecutionException | TimeoutException e) {
+            log.error("Failed to enqueue checkout {} for user {}", orderNumber, userId, e);
+            markFailed(status);
+            throw new IllegalStateException("Failed to queue checkout. Please try again.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            markFailed(status);
+            throw new IllegalStateException("Failed to queue checkout. Please try again.", e);
+        }
+
+        log.info("Queued checkout {} for user {}", orderNumber, userId);
+        return status;
+    }
+
+    private void markFailed(CheckoutStatusResponse status) {
+        status.setStatus(CheckoutStatusResponse.Status.FAILED);
+        status.setError("Failed to queue checkout");
+        checkoutStatusService.update(status);
+    }
+}
@@ -20,6 +20,8 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final JwtService jwtService;
+    private final UserExistenceCache userExistenceCache;
+    private final CounterService counterService;
 
     @Transactional
     public AuthResponse signup(SignupRequest request) {
@@ -43,6 +45,7 @@ public class AuthService {
                 .build();
 
         User savedUser = userRepository.save(user);
+        counterService.add(CounterService.USERS_TOTAL, 1);
         log.info("User registered: {}", savedUser.getEmail());
 
         // Generate JWT token
@@ -67,6 +70,7 @@ public class AuthService {
         }
 
         log.info("User logged in: {}", user.getEmail());
+        userExistenceCache.markExists(user.getId());
 
         // Generate JWT token
         String token = jwtService.generateToken(user.getId(), user.getRole());
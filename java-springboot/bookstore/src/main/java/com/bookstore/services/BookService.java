@@ -2,10 +2,10 @@ package com.bookstore.services;
 
 import com.bookstore.domain.book.Author;
 import com.bookstore.domain.book.Book;
+import com.bookstore.domain.book.StockChangeReason;
 import com.bookstore.dto.CreateBookRequest;
 import com.bookstore.repository.AuthorRepository;
 import com.bookstore.repository.BookRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -14,8 +14,11 @@ import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
@@ -24,9 +27,13 @@ public class BookService {
 
     private final BookRepository bookRepository;
     private final AuthorRepository authorRepository;
-    private final ObjectMapper objectMapper;
     private final BloomFilterService bloomFilterService;
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private final OutboxService outboxService;
+    private final InventoryService inventoryService;
+    private final RetryExecutor retryExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final CounterService counterService;
+    private final StockLedgerService stockLedgerService;
 
     private static final String BOOK_CREATED_TOPIC = "BOOK_CREATED";
 
@@ -73,40 +80,53 @@ public class BookService {
                 .build();
 
         Book saved = bookRepository.save(book);
+        counterService.add(Map.of(
+                CounterService.BOOKS_TOTAL, 1,
+                CounterService.BOOKS_OUT_OF_STOCK, saved.getStock() == 0 ? 1 : 0
+        ));
+        stockLedgerService.append(StockChangeReason.INITIAL, saved.getId(), saved.getStock(), saved.getStock(), null);
 
         // ISBN will be added to BloomFilter by Kafka consumer after indexing
         // No need to add here - avoids duplicate operations
 
-        // Publish directly to Kafka (non-blocking)
-        try {
-            String payload = objectMapper.writeValueAsString(saved);
-            kafkaTemplate.send(BOOK_CREATED_TOPIC, String.valueOf(saved.getId()), payload)
-                .whenComplete((result, ex) -> {
-                    if (ex == null) {
-                        log.info("Successfully published book {} to Kafka", saved.getId());
-                    } else {
-                        log.error("Failed to publish book {} to Kafka (non-blocking)", saved.getId(), ex);
-                    }
-                });
-            log.info("Created book with ISBN: {} and queued Kafka event", normalizedIsbn);
-        } catch (Exception e) {
-            log.error("Failed to serialize book for Kafka (non-blocking)", e);
-            // Don't throw - allow book creation to succeed even if Kafka fails
-        }
+        // Published by OutboxRelayJob once this transaction commits; the consumer reloads the book,
+        // so the event only identifies it (the entity itself would drag in its author's books)
+        Map<String, Object> eventPayload = new HashMap<>();
+        eventPayload.put("id", saved.getId());
+        eventPayload.put("isbn", saved.getIsbn());
+        eventPayload.put("title", saved.getTitle());
+        outboxService.enqueue(BOOK_CREATED_TOPIC, String.valueOf(saved.getId()), eventPayload);
+        log.info("Created book with ISBN: {} and queued Kafka event", normalizedIsbn);
 
         return saved;
     }
 
-    @Transactional
+    /**
+     * Admin stock adjustment; races with checkout's version bumps, so retried outside the transaction
+     */
     @CacheEvict(value = "book", key = "#bookId")
     public Book updateStock(Long bookId, int delta) {
+        return retryExecutor.execute("book.stock.update",
+                () -> transactionTemplate.execute(status -> applyStockDelta(bookId, delta)));
+    }
+
+    private Book applyStockDelta(Long bookId, int delta) {
         Book book = bookRepository.findById(bookId)
                 .orElseThrow(() -> new IllegalArgumentException("Book not found"));
 
-        int newStock = book.getStock() + delta;
-        if (newStock < 0) throw new IllegalStateException("Insufficient stock");
+        int previousStock = book.getStock();
+        if (InventoryService.isSharded(book)) {
+            // Stock lives in the counter slots; books.stock just mirrors the aggregate
+            book.setStock(inventoryService.adjustShardedStock(bookId, delta, book.getStockShards()));
+        } else {
+            int newStock = previousStock + delta;
+            if (newStock < 0) throw new IllegalStateException("Insufficient stock");
+            book.setStock(newStock);
+        }
 
-        book.setStock(newStock);
+        // The save's version check guarantees previousStock is what this commit replaces
+        counterService.add(CounterService.BOOKS_OUT_OF_STOCK, CounterService.outOfStockDelta(previousStock, book.getStock()));
+        stockLedgerService.append(StockChangeReason.ADJUSTMENT, bookId, delta, book.getStock(), null);
         return bookRepository.save(book);
     }
 }
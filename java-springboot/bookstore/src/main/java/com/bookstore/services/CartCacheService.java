@@ -0,0 +1,113 @@
+package com.bookstore.services;
+
+import com.bookstore.dto.CartResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Redis cache of serialized cart responses keyed by user
+ * Written on every cart mutation so GET /api/cart is a single key lookup
+ *
+ * Entries carry the cart's (id, version) and a write only lands if it is newer than what
+ * is stored, so a reader that loaded the cart before a concurrent edit committed can't put
+ * the older cart back. Retiring a cart (checkout) leaves a marker that refuses every later
+ * write for that cart; the user's next cart has a higher id and replaces it.
+ * Best-effort - Redis failures fall back to the database
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CartCacheService {
+
+    private static final String CART_KEY_PREFIX = "cart:user:";
+    private static final Duration CART_TTL = Duration.ofHours(1);
+
+    // ARGV: cartId, version, entry json, ttl millis; returns 1 if written
+    private static final RedisScript<Long> PUT_IF_NEWER = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current then
+                local stored = cjson.decode(current)
+                local cartId, version = tonumber(ARGV[1]), tonumber(ARGV[2])
+                if stored.cartId > cartId or (stored.cartId == cartId and stored.version >= version) then
+                    return 0
+                end
+            end
+            redis.call('SET', KEYS[1], ARGV[3], 'PX', ARGV[4])
+            return 1
+            """, Long.class);
+
+    // cart is null for a retired cart
+    private record Entry(long cartId, long version, CartResponse cart) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+
+    public Optional<CartResponse> get(Long userId) {
+        try {
+            String json = redisTemplate.opsForValue().get(key(userId));
+            if (json == null) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(objectMapper.readValue(json, Entry.class).cart());
+        } catch (Exception e) {
+            log.warn("Failed to read cached cart for user {}", userId, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the response once the surrounding transaction commits,
+     * so readers never see a cart that was rolled back
+     */
+    public void put(CartResponse response) {
+        long version = response.getVersion() != null ? response.getVersion() : 0;
+        afterCommit(() -> write(response.getUserId(), new Entry(response.getCartId(), version, response)));
+    }
+
+    /**
+     * Drops the cached cart after commit and refuses any later write of that cart
+     */
+    public void retire(Long userId, Long cartId) {
+        afterCommit(() -> write(userId, new Entry(cartId, Long.MAX_VALUE, null)));
+    }
+
+    private void write(Long userId, Entry entry) {
+        try {
+            String json = objectMapper.writeValueAsString(entry);
+            redisTemplate.execute(PUT_IF_NEWER, List.of(key(userId)),
+                    String.valueOf(entry.cartId()), String.valueOf(entry.version()), json,
+                    String.valueOf(CART_TTL.toMillis()));
+        } catch (Exception e) {
+            log.warn("Failed to cache cart for user {}", userId, e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private String key(Long userId) {
+        return CART_KEY_PREFIX + userId;
+    }
+}
@@ -7,15 +7,20 @@ import com.bookstore.dto.CartResponse;
 import com.bookstore.dto.EditCartRequest;
 import com.bookstore.repository.BookRepository;
 import com.bookstore.repository.CartRepository;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
@@ -25,6 +30,22 @@ public class CartService {
 
     private final CartRepository cartRepository;
     private final BookRepository bookRepository;
+    private final CartCacheService cartCacheService;
+    private final RetryExecutor retryExecutor;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Stale edit whose changes collide with another device's; nothing was written
+     */
+    @Getter
+    public static class EditConflictException extends RuntimeException {
+        private final CartResponse current;
+
+        public EditConflictException(CartResponse current) {
+            super("Cart was changed on another device");
+            this.current = current;
+        }
+    }
 
     /**
      * Get or create active cart for user
@@ -46,97 +67,162 @@ public class CartService {
      * Edit cart - request body is source of truth
      * Completely overwrites cart with items from request
      * Items not in request are removed, items in request are added/updated
+     *
+     * If the client sends a cartVersion older than the stored one, another device edited
+     * the cart in between. The edit is then merged three ways against baseItems, the cart the
+     * client edited: per book, whichever side changed the quantity since the base wins (so a
+     * removal on either side sticks), and books both sides changed differently fail the whole
+     * edit with EditConflictException, carrying the current cart, instead of guessing.
+     * Concurrent writers that slip past the row lock are retried in a fresh transaction (the retry
+     * re-reads the cart, so it takes the merge path); if contention persists the
+     * OptimisticLockingFailureException is left for the caller to report.
      */
-    @Transactional
     public CartResponse editCart(Long userId, EditCartRequest request) {
-        int maxRetries = 3;
-        int retryCount = 0;
-
-        while (retryCount < maxRetries) {
-            try {
-                // Use pessimistic lock for cart
-                Cart cart = cartRepository.findByUserIdAndIsActiveTrueWithLock(userId)
-                        .orElseGet(() -> {
-                            Cart newCart = Cart.builder()
-                                    .userId(userId)
-                                    .isActive(true)
-                                    .build();
-                            return cartRepository.save(newCart);
-                        });
-
-                if (!cart.getIsActive()) {
-                    throw new IllegalStateException("Cannot edit inactive cart");
-                }
-
-                // Collect all book IDs and bulk fetch (optimized)
-                List<Long> bookIds = request.getItems().stream()
-                        .map(EditCartRequest.CartItem::getBookId)
-                        .collect(Collectors.toList());
-
-                // Bulk fetch books with pessimistic locking
-                List<Book> books = bookRepository.findByIdsWithLock(bookIds);
-                Map<Long, Book> booksMap = books.stream()
-                        .collect(Collectors.toMap(Book::getId, book -> book));
-
-                // Validate all books exist and stock is available
-                for (EditCartRequest.CartItem itemRequest : request.getItems()) {
-                    Book book = booksMap.get(itemRequest.getBookId());
-
-                    if (book == null) {
-                        throw new IllegalArgumentException("Book not found: " + itemRequest.getBookId());
-                    }
-
-                    // Validate stock availability
-                    if (book.getStock() < itemRequest.getQuantity()) {
-                        throw new IllegalStateException(
-                                String.format("Insufficient stock for book '%s'. Available: %d, Requested: %d",
-                                        book.getTitle(), book.getStock(), itemRequest.getQuantity()));
-                    }
-                }
-
-                // Clear all existing items (request body is source of truth)
-                cart.getItems().clear();
-
-                // Add all items from request
-                for (EditCartRequest.CartItem itemRequest : request.getItems()) {
-                    Book book = booksMap.get(itemRequest.getBookId());
-
-                    CartItem newItem = CartItem.builder()
-                            .cart(cart)
-                            .book(book)
-                            .quantity(itemRequest.getQuantity())
+        return retryExecutor.execute("cart.edit",
+                () -> transactionTemplate.execute(status -> applyEdit(userId, request)));
+    }
+
+    private CartResponse applyEdit(Long userId, EditCartRequest request) {
+        // Use pessimistic lock for cart
+        Cart cart = cartRepository.findByUserIdAndIsActiveTrueWithLock(userId)
+                .orElseGet(() -> {
+                    Cart newCart = Cart.builder()
+                            .userId(userId)
+                            .isActive(true)
                             .build();
-                    cart.getItems().add(newItem);
-                }
-
-                cartRepository.save(cart);
-                log.info("Cart overwritten for user {} with {} items", userId, request.getItems().size());
-                return buildCartResponse(cart);
-
-            } catch (OptimisticLockingFailureException e) {
-                retryCount++;
-                log.warn("Optimistic lock conflict on cart update, retry {}/{}", retryCount, maxRetries);
-                if (retryCount >= maxRetries) {
-                    throw new IllegalStateException("Failed to update cart due to concurrent modification", e);
-                }
-                // Small delay before retry
-                try {
-                    Thread.sleep(50);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new IllegalStateException("Interrupted during retry", ie);
-                }
+                    return cartRepository.save(newCart);
+                });
+
+        if (!cart.getIsActive()) {
+            throw new IllegalStateException("Cannot edit inactive cart");
+        }
+
+        // Desired quantity per book, in request order
+        Map<Long, Integer> quantities = toQuantities(request.getItems());
+
+        boolean stale = request.getCartVersion() != null && !request.getCartVersion().equals(cart.getVersion());
+        if (stale) {
+            quantities = merge(userId, request, cart, quantities);
+        }
+
+        // Bulk fetch books with pessimistic locking
+        List<Book> books = bookRepository.findByIdsWithLock(new ArrayList<>(quantities.keySet()));
+        Map<Long, Book> booksMap = books.stream()
+                .collect(Collectors.toMap(Book::getId, book -> book));
+
+        // Validate all books exist and stock is available
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Book book = booksMap.get(entry.getKey());
+
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found: " + entry.getKey());
             }
+
+            // Validate stock availability
+            if (book.getStock() < entry.getValue()) {
+                throw new IllegalStateException(
+                        String.format("Insufficient stock for book '%s'. Available: %d, Requested: %d",
+                                book.getTitle(), book.getStock(), entry.getValue()));
+            }
+        }
+
+        // Clear all existing items (merged request is source of truth)
+        cart.clearItems();
+
+        // Add all items, snapshotting book fields so reads never touch books
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Book book = booksMap.get(entry.getKey());
+
+            CartItem newItem = CartItem.builder()
+                    .book(book)
+                    .bookTitle(book.getTitle())
+                    .unitPrice(book.getPrice())
+                    .quantity(entry.getValue())
+                    .build();
+            cart.addItem(newItem);
         }
 
-        throw new IllegalStateException("Failed to edit cart after retries");
+        Cart saved = cartRepository.saveAndFlush(cart);
+        log.info("Cart overwritten for user {} with {} items (version {})", userId, quantities.size(), saved.getVersion());
+
+        CartResponse response = cacheCartResponse(saved);
+        if (stale) {
+            // Specific to this caller, keep it out of the shared cache
+            response = response.toBuilder()
+                    .merged(true)
+                    .build();
+        }
+        return response;
+    }
+
+    // Three-way merge of the client's edit and the server cart against the cart the client edited
+    private Map<Long, Integer> merge(Long userId, EditCartRequest request, Cart cart, Map<Long, Integer> edited) {
+        if (request.getBaseItems() == null) {
+            throw new EditConflictException(buildCartResponse(cart));
+        }
+        Map<Long, Integer> base = toQuantities(request.getBaseItems());
+        Map<Long, Integer> server = new LinkedHashMap<>();
+        for (CartItem existing : cart.getItems()) {
+            server.merge(existing.getBook().getId(), existing.getQuantity(), Integer::sum);
+        }
+
+        Set<Long> bookIds = new LinkedHashSet<>(edited.keySet());
+        bookIds.addAll(server.keySet());
+        bookIds.addAll(base.keySet());
+
+        Map<Long, Integer> merged = new LinkedHashMap<>();
+        List<Long> conflictingBookIds = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            // 0 = not in the cart
+            int baseQuantity = base.getOrDefault(bookId, 0);
+            int clientQuantity = edited.getOrDefault(bookId, 0);
+            int serverQuantity = server.getOrDefault(bookId, 0);
+
+            int quantity;
+            if (clientQuantity == baseQuantity) {
+                quantity = serverQuantity;
+            } else if (serverQuantity == baseQuantity || serverQuantity == clientQuantity) {
+                quantity = clientQuantity;
+            } else {
+                conflictingBookIds.add(bookId);
+                continue;
+            }
+            if (quantity > 0) {
+                merged.put(bookId, quantity);
+            }
+        }
+
+        if (!conflictingBookIds.isEmpty()) {
+            log.info("Rejected stale cart edit for user {} (client version {}, server version {}), {} books changed on both sides",
+                    userId, request.getCartVersion(), cart.getVersion(), conflictingBookIds.size());
+            throw new EditConflictException(buildCartResponse(cart).toBuilder()
+                    .conflictingBookIds(conflictingBookIds)
+                    .build());
+        }
+        log.info("Merged stale cart edit for user {} (client version {}, server version {})",
+                userId, request.getCartVersion(), cart.getVersion());
+        return merged;
+    }
+
+    private static Map<Long, Integer> toQuantities(List<EditCartRequest.CartItem> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (EditCartRequest.CartItem item : items) {
+            quantities.merge(item.getBookId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
     }
 
     /**
      * Get active cart contents
+     * Served from the cart cache; falls back to the database on a miss
+     * Not transactional so a cache hit never borrows a DB connection
      */
-    @Transactional(readOnly = true)
     public CartResponse getCart(Long userId) {
+        Optional<CartResponse> cached = cartCacheService.get(userId);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         Cart cart = cartRepository.findByUserIdAndIsActiveTrue(userId)
                 .orElseGet(() -> {
                     // Create empty active cart if none exists
@@ -147,29 +233,37 @@ public class CartService {
                     return cartRepository.save(newCart);
                 });
 
-        return buildCartResponse(cart);
+        return cacheCartResponse(cart);
     }
 
     /**
      * Remove item from cart
      */
-    @Transactional
     public CartResponse removeFromCart(Long userId, Long cartItemId) {
+        return retryExecutor.execute("cart.remove",
+                () -> transactionTemplate.execute(status -> applyRemove(userId, cartItemId)));
+    }
+
+    private CartResponse applyRemove(Long userId, Long cartItemId) {
         Cart cart = cartRepository.findByUserIdAndIsActiveTrueWithLock(userId)
                 .orElseThrow(() -> new IllegalArgumentException("Cart not found"));
 
-        cart.getItems().removeIf(item -> item.getId().equals(cartItemId));
-        cartRepository.save(cart);
+        cart.removeItem(cartItemId);
+        cartRepository.saveAndFlush(cart);
 
-        return buildCartResponse(cart);
+        return cacheCartResponse(cart);
     }
 
     /**
      * Clear cart (remove all items, but keep cart active)
      * Creates empty cart if none exists
      */
-    @Transactional
     public void clearCart(Long userId) {
+        retryExecutor.run("cart.clear",
+                () -> transactionTemplate.executeWithoutResult(status -> applyClear(userId)));
+    }
+
+    private void applyClear(Long userId) {
         Cart cart = cartRepository.findByUserIdAndIsActiveTrueWithLock(userId)
                 .orElseGet(() -> {
                     // Create empty active cart if none exists
@@ -180,20 +274,22 @@ public class CartService {
                     return cartRepository.save(newCart);
                 });
 
-        cart.getItems().clear();
-        cartRepository.save(cart);
+        cart.clearItems();
+        cartRepository.saveAndFlush(cart);
+        cacheCartResponse(cart);
     }
 
     /**
-     * Deactivate cart (called asynchronously after checkout)
+     * Deactivate the checked-out cart (called asynchronously after checkout)
+     * Only acts while that cart is still active, so a redelivered event leaves the user's
+     * newer cart alone
      */
     @Transactional
-    public void deactivateCart(Long userId) {
-        Cart cart = cartRepository.findByUserIdAndIsActiveTrue(userId)
-                .orElseThrow(() -> new IllegalArgumentException("Active cart not found for user: " + userId));
-
-        cart.setIsActive(false);
-        cartRepository.save(cart);
+    public void deactivateCart(Long userId, Long cartId) {
+        if (cartRepository.deactivateIfActive(cartId, userId) == 0) {
+            log.info("Cart {} of user {} is already inactive; ignoring deactivation", cartId, userId);
+            return;
+        }
 
         // Create new empty active cart for user
         Cart newCart = Cart.builder()
@@ -201,41 +297,41 @@ public class CartService {
                 .isActive(true)
                 .build();
         cartRepository.save(newCart);
+        cartCacheService.retire(userId, cartId);
 
-        log.info("Deactivated cart {} and created new active cart for user {}", cart.getId(), userId);
+        log.info("Deactivated cart {} and created new active cart for user {}", cartId, userId);
     }
 
+    private CartResponse cacheCartResponse(Cart cart) {
+        CartResponse response = buildCartResponse(cart);
+        cartCacheService.put(response);
+        return response;
+    }
+
+    /**
+     * Builds the response from denormalized item snapshots and the cart's running totals
+     * Single pass over items, no book dereferences
+     */
     private CartResponse buildCartResponse(Cart cart) {
         List<CartResponse.CartItemResponse> items = cart.getItems().stream()
-                .map(item -> {
-                    BigDecimal subtotal = item.getBook().getPrice()
-                            .multiply(BigDecimal.valueOf(item.getQuantity()));
-                    return CartResponse.CartItemResponse.builder()
-                            .itemId(item.getId())
-                            .bookId(item.getBook().getId())
-                            .bookTitle(item.getBook().getTitle())
-                            .unitPrice(item.getBook().getPrice())
-                            .quantity(item.getQuantity())
-                            .subtotal(subtotal)
-                            .build();
-                })
+                .map(item -> CartResponse.CartItemResponse.builder()
+                        .itemId(item.getId())
+                        .bookId(item.getBook().getId())
+                        .bookTitle(item.getBookTitle())
+                        .unitPrice(item.getUnitPrice())
+                        .quantity(item.getQuantity())
+                        .subtotal(item.getSubtotal())
+                        .build())
                 .collect(Collectors.toList());
 
-        BigDecimal totalAmount = items.stream()
-                .map(CartResponse.CartItemResponse::getSubtotal)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        int totalItems = items.stream()
-                .mapToInt(CartResponse.CartItemResponse::getQuantity)
-                .sum();
-
         return CartResponse.builder()
                 .cartId(cart.getId())
                 .userId(cart.getUserId())
                 .isActive(cart.getIsActive())
+                .version(cart.getVersion())
                 .items(items)
-                .totalAmount(totalAmount)
-                .totalItems(totalItems)
+                .totalAmount(cart.getTotalAmount())
+                .totalItems(cart.getTotalItems())
                 .build();
     }
 }
@@ -0,0 +1,173 @@
+package com.bookstore.services;
+
+import com.bookstore.dto.CartResponse;
+import com.bookstore.dto.OrderResponse;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Funnels checkouts for a contended book through a single writer per book
+ *
+ * A checkout whose cart holds exactly one title goes straight to CheckoutService until
+ * more than hot-threshold checkouts for that title are in flight. Beyond that, requests
+ * are queued per book and a single writer drains them in micro-batches
+ * (CheckoutService.checkoutBatch: one transaction, one combined stock decrement), and each
+ * waiting request gets its result through a CompletableFuture once the batch commits.
+ * No request thread holds a DB connection while it waits. A book's counter and queue are
+ * dropped as soon as its last checkout completes, so only books with checkouts in flight
+ * take up memory.
+ */
+@Service
+@Slf4j
+public class CheckoutCoalescer {
+
+    private final CheckoutService checkoutService;
+    private final CartCacheService cartCacheService;
+
+    private final ExecutorService writers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, BookQueue> queues = new ConcurrentHashMap<>();
+    // Checkouts in flight per book, direct or queued; updated atomically per book in compute()
+    private final Map<Long, Integer> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${checkout.coalescing.enabled:true}")
+    private boolean enabled;
+
+    @Value("${checkout.coalescing.hot-threshold:8}")
+    private int hotThreshold;
+
+    @Value("${checkout.coalescing.max-batch-size:50}")
+    private int maxBatchSize;
+
+    public CheckoutCoalescer(
+            CheckoutService checkoutService,
+            CartCacheService cartCacheService
+    ) {
+        this.checkoutService = checkoutService;
+        this.cartCacheService = cartCacheService;
+    }
+
+    public CompletableFuture<OrderResponse> checkout(Long userId) {
+        Long bookId = enabled ? singleBookInCart(userId) : null;
+        if (bookId == null) {
+            return CompletableFuture.completedFuture(checkoutService.checkout(userId));
+        }
+
+        int count = inFlight.merge(bookId, 1, Integer::sum);
+        CompletableFuture<OrderResponse> result;
+        if (count <= hotThreshold) {
+            try {
+                result = CompletableFuture.completedFuture(checkoutService.checkout(userId));
+            } catch (RuntimeException e) {
+                result = CompletableFuture.failedFuture(e);
+            }
+        } else {
+            result = new CompletableFuture<>();
+            queues.computeIfAbsent(bookId, BookQueue::new).submit(new CheckoutService.CheckoutRequest(userId, null, result));
+        }
+        return result.whenComplete((order, ex) -> release(bookId));
+    }
+
+    /**
+     * Ends one checkout for the book; the last one out removes the book's queue, which is empty by
+     * then since queued requests count as in flight until they complete
+     */
+    private void release(Long bookId) {
+        inFlight.computeIfPresent(bookId, (id, count) -> {
+            if (count > 1) {
+                return count - 1;
+            }
+            queues.remove(id);
+            return null;
+        });
+    }
+
+    /**
+     * Read from the cart cache only - a miss just means no coalescing for this request
+     */
+    private Long singleBookInCart(Long userId) {
+        Optional<CartResponse> cart = cartCacheService.get(userId);
+        if (cart.isEmpty() || cart.get().getItems() == null) {
+            return null;
+        }
+        List<Long> bookIds = cart.get().getItems().stream()
+                .map(CartResponse.CartItemResponse::getBookId)
+                .distinct()
+                .toList();
+        return bookIds.size() == 1 ? bookIds.get(0) : null;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdown();
+    }
+
+    /**
+     * Pending checkouts for one book plus a flag guaranteeing at most one writer drains them
+     */
+    private final class BookQueue {
+
+        private final Long bookId;
+        private final ConcurrentLinkedQueue<CheckoutService.CheckoutRequest> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        private BookQueue(Long bookId) {
+            this.bookId = bookId;
+        }
+
+        void submit(CheckoutService.CheckoutRequest queued) {
+            pending.add(queued);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                writers.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                List<CheckoutService.CheckoutRequest> batch = nextBatch();
+                while (!batch.isEmpty()) {
+                    try {
+                        checkoutService.checkoutBatch(batch);
+                        log.debug("Coalesced {} checkouts for book {}", batch.size(), bookId);
+                    } catch (RuntimeException e) {
+                        // Infrastructure failure: nothing redelivers these, so answer the callers
+                        log.warn("Coalesced checkout batch for book {} failed", bookId, e);
+                        batch.forEach(request -> request.result().completeExceptionally(e));
+                    }
+                    batch = nextBatch();
+                }
+            } finally {
+                draining.set(false);
+                // A request may have arrived between the last poll and releasing the flag
+                if (!pending.isEmpty()) {
+                    scheduleDrain();
+                }
+            }
+        }
+
+        private List<CheckoutService.CheckoutRequest> nextBatch() {
+            List<CheckoutService.CheckoutRequest> batch = new ArrayList<>();
+            CheckoutService.CheckoutRequest queued;
+            while (batch.size() < maxBatchSize && (queued = pending.poll()) != null) {
+                batch.add(queued);
+            }
+            return batch;
+        }
+    }
+}
@@ -1,30 +1,31 @@
 package com.bookstore.services;
 
 import com.bookstore.domain.book.Book;
+import com.bookstore.domain.book.StockChangeReason;
 import com.bookstore.domain.cart.Cart;
 import com.bookstore.domain.cart.CartItem;
 import com.bookstore.domain.order.Order;
 import com.bookstore.domain.order.OrderItem;
 import com.bookstore.domain.order.OrderStatus;
-import com.bookstore.domain.user.User;
 import com.bookstore.dto.OrderResponse;
-import com.bookstore.repository.BookRepository;
 import com.bookstore.repository.CartRepository;
 import com.bookstore.repository.OrderRepository;
 import com.bookstore.repository.UserRepository;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.dao.OptimisticLockingFailureException;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,158 +35,245 @@ public class CheckoutService {
 
     private final CartRepository cartRepository;
     private final OrderRepository orderRepository;
-    private final BookRepository bookRepository;
+    private final InventoryService inventoryService;
     private final UserRepository userRepository;
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final ObjectMapper objectMapper;
+    private final UserExistenceCache userExistenceCache;
+    private final OutboxService outboxService;
+    private final OrderNumberGenerator orderNumberGenerator;
+    private final OrderNumberRegistry orderNumberRegistry;
+    private final OrderSnapshotCache orderSnapshotCache;
+    private final CounterService counterService;
+    private final StockLedgerService stockLedgerService;
+    private final OrderChangeService orderChangeService;
+    private final RetryExecutor retryExecutor;
+    private final TransactionTemplate transactionTemplate;
 
     private static final String CART_DEACTIVATED_TOPIC = "CART_DEACTIVATED";
 
+    /**
+     * Cart locked and order assembled, stock not yet decremented
+     */
+    private record PendingOrder(Cart cart, Order order, Map<Long, Integer> quantities, Map<Long, Integer> shardCounts) {
+    }
+
+    /**
+     * One checkout within a batch; result completes once its order is placed or rejected
+     * orderNumber may be pre-assigned (async checkout) or null to generate one
+     */
+    public record CheckoutRequest(Long userId, String orderNumber, CompletableFuture<OrderResponse> result) {
+    }
+
     /**
      * Checkout cart and create order with race condition handling
-     * Uses optimistic locking on books and pessimistic locking on cart
-     * Publishes Kafka event to deactivate cart asynchronously
+     * Uses pessimistic locking on cart and conditional stock updates on books (see InventoryService)
+     * Cart deactivation event is written to the outbox and published after commit
+     * Each attempt is its own transaction; RetryExecutor backs off between attempts outside it
      */
-    @Transactional
     public OrderResponse checkout(Long userId) {
-        int maxRetries = 5;
-        int retryCount = 0;
+        return checkout(userId, null);
+    }
 
-        while (retryCount < maxRetries) {
-            try {
-                // Lock active cart for update
-                Cart cart = cartRepository.findByUserIdAndIsActiveTrueWithLock(userId)
-                        .orElseThrow(() -> new IllegalArgumentException("Cannot checkout: cart is empty or not found. Please add items to your cart first."));
+    public OrderResponse checkout(Long userId, String orderNumber) {
+        try {
+            return placeSingle(userId, orderNumber);
+        } catch (ConcurrencyFailureException e) {
+            throw new IllegalStateException(
+                    "Failed to complete checkout due to concurrent modifications. Please try again.", e);
+        }
+    }
 
-                if (cart.getItems().isEmpty()) {
-                    throw new IllegalStateException("Cannot checkout empty cart");
-                }
+    private OrderResponse placeSingle(Long userId, String orderNumber) {
+        return retryExecutor.execute("checkout", () -> transactionTemplate.execute(status -> {
+            PendingOrder pending = prepareOrder(userId, orderNumber);
 
-                // Collect all book IDs from cart items
-                List<Long> bookIds = cart.getItems().stream()
-                        .map(item -> item.getBook().getId())
-                        .collect(Collectors.toList());
+            // Decrement stock last so book rows are locked only for the order insert and commit
+            Map<Long, Integer> stockAfter = inventoryService.decrementStock(pending.quantities(), pending.shardCounts());
+            recordStockMovements(List.of(pending), stockAfter);
 
-                // Bulk fetch all books with pessimistic locking (single query)
-                List<Book> books = bookRepository.findByIdsWithLock(bookIds);
+            return placeOrder(pending);
+        }));
+    }
 
-                // Create a map for quick lookup by book ID
-                Map<Long, Book> booksMap = books.stream()
-                        .collect(Collectors.toMap(Book::getId, book -> book));
+    /**
+     * Places every order of the batch in one transaction with one combined stock decrement
+     * A request that fails validation only fails itself. If the combined decrement fails
+     * (typically a title sold out mid-batch) the batch is rolled back and each request is
+     * settled on its own so it gets its own answer. Results are completed after commit.
+     * Only business rejections (empty cart, stock, changed prices) complete a request exceptionally;
+     * any other failure, including lock contention that outlasted the retries, is rethrown with
+     * the remaining requests still pending so the caller can redeliver them.
+     */
+    public void checkoutBatch(List<CheckoutRequest> batch) {
+        Map<CheckoutRequest, OrderResponse> placed;
+        try {
+            placed = transactionTemplate.execute(status -> placeBatch(batch));
+        } catch (RuntimeException e) {
+            log.info("Checkout batch of {} failed ({}), settling individually", batch.size(), e.getMessage());
+            for (CheckoutRequest request : batch) {
+                if (!request.result().isDone()) {
+                    try {
+                        request.result().complete(placeSingle(request.userId(), request.orderNumber()));
+                    } catch (IllegalArgumentException | IllegalStateException ex) {
+                        request.result().completeExceptionally(ex);
+                    }
+                }
+            }
+            return;
+        }
 
-                // Validate stock availability and update stock atomically
-                for (CartItem item : cart.getItems()) {
-                    Book book = booksMap.get(item.getBook().getId());
+        placed.forEach((request, order) -> request.result().complete(order));
+    }
 
-                    if (book == null) {
-                        throw new IllegalArgumentException("Book not found: " + item.getBook().getId());
-                    }
+    private Map<CheckoutRequest, OrderResponse> placeBatch(List<CheckoutRequest> batch) {
+        Map<CheckoutRequest, PendingOrder> prepared = new LinkedHashMap<>();
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<Long, Integer> shardCounts = new HashMap<>();
 
-                    // Re-check stock with current version
-                    if (book.getStock() < item.getQuantity()) {
-                        throw new IllegalStateException(
-                                String.format("Insufficient stock for book '%s'. Available: %d, Requested: %d",
-                                        book.getTitle(), book.getStock(), item.getQuantity()));
-                    }
+        Set<Long> users = new HashSet<>();
 
-                    // Update stock atomically (pessimistic locking prevents concurrent modifications)
-                    int newStock = book.getStock() - item.getQuantity();
-                    book.setStock(newStock);
-                }
+        for (CheckoutRequest request : batch) {
+            if (!users.add(request.userId())) {
+                // Same cart queued twice - it can only become one order
+                request.result().completeExceptionally(
+                        new IllegalStateException("Checkout already in progress for this cart"));
+                continue;
+            }
+            try {
+                PendingOrder pending = prepareOrder(request.userId(), request.orderNumber());
+                prepared.put(request, pending);
+                pending.quantities().forEach((id, quantity) -> quantities.merge(id, quantity, Integer::sum));
+                shardCounts.putAll(pending.shardCounts());
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                // Empty cart, price change, ... - only this request fails
+                request.result().completeExceptionally(e);
+            }
+        }
 
-                // Bulk save all books (single save call - JPA will batch if configured)
-                bookRepository.saveAll(books);
-
-                // Generate unique order number
-                String orderNumber = generateOrderNumber();
-
-                // Create order
-                User user = userRepository.findById(userId)
-                        .orElseThrow(() -> new IllegalArgumentException("User not found"));
-
-                Order order = Order.builder()
-                        .orderNumber(orderNumber)
-                        .user(user)
-                        .status(OrderStatus.CONFIRMED)
-                        .build();
-
-                // Create order items
-                List<OrderItem> orderItems = cart.getItems().stream()
-                        .map(cartItem -> {
-                            BigDecimal subtotal = cartItem.getBook().getPrice()
-                                    .multiply(BigDecimal.valueOf(cartItem.getQuantity()));
-
-                            return OrderItem.builder()
-                                    .order(order)
-                                    .book(cartItem.getBook())
-                                    .quantity(cartItem.getQuantity())
-                                    .unitPrice(cartItem.getBook().getPrice())
-                                    .subtotal(subtotal)
-                                    .build();
-                        })
-                        .collect(Collectors.toList());
-
-                order.setItems(orderItems);
-
-                BigDecimal totalAmount = orderItems.stream()
-                        .map(OrderItem::getSubtotal)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-                order.setTotalAmount(totalAmount);
-
-                // Save order
-                Order savedOrder = orderRepository.save(order);
-
-                // Publish Kafka event to deactivate cart asynchronously
-                try {
-                    Map<String, Object> eventPayload = new HashMap<>();
-                    eventPayload.put("userId", userId);
-                    eventPayload.put("cartId", cart.getId());
-                    eventPayload.put("orderNumber", orderNumber);
-
-                    String payload = objectMapper.writeValueAsString(eventPayload);
-                    kafkaTemplate.send(CART_DEACTIVATED_TOPIC, String.valueOf(userId), payload)
-                            .whenComplete((result, ex) -> {
-                                if (ex == null) {
-                                    log.info("Published cart deactivation event for user {}", userId);
-                                } else {
-                                    log.error("Failed to publish cart deactivation event", ex);
-                                }
-                            });
-                } catch (Exception e) {
-                    log.error("Failed to publish cart deactivation event (non-blocking)", e);
-                    // Don't throw - checkout succeeds even if Kafka fails
-                }
+        Map<CheckoutRequest, OrderResponse> placed = new LinkedHashMap<>();
+        if (prepared.isEmpty()) {
+            return placed;
+        }
 
-                log.info("Order created successfully: {} for user: {}", orderNumber, userId);
+        Map<Long, Integer> stockAfter = inventoryService.decrementStock(quantities, shardCounts);
+        recordStockMovements(prepared.values(), stockAfter);
+        prepared.forEach((request, pending) -> placed.put(request, placeOrder(pending)));
+        return placed;
+    }
 
-                return buildOrderResponse(savedOrder);
+    /**
+     * One ledger entry per order and book, replayed in order from the stock after the combined decrement
+     */
+    private void recordStockMovements(Collection<PendingOrder> orders, Map<Long, Integer> stockAfter) {
+        Map<String, Map<Long, Integer>> deltas = new LinkedHashMap<>();
+        for (PendingOrder pending : orders) {
+            Map<Long, Integer> orderDeltas = new HashMap<>();
+            pending.quantities().forEach((bookId, quantity) -> orderDeltas.put(bookId, -quantity));
+            deltas.put(pending.order().getOrderNumber(), orderDeltas);
+        }
+        stockLedgerService.append(StockChangeReason.CHECKOUT, StockLedgerService.inSequence(deltas, stockAfter));
+    }
 
-            } catch (OptimisticLockingFailureException e) {
-                retryCount++;
-                log.warn("Optimistic lock conflict during checkout, retry {}/{}", retryCount, maxRetries);
+    /**
+     * Locks the user's cart and builds the order in memory
+     * Everything here runs without holding book locks
+     * Must be called inside a transaction; deliberately not @Transactional so a validation
+     * failure doesn't mark a shared batch transaction rollback-only
+     */
+    private PendingOrder prepareOrder(Long userId, String orderNumber) {
+        // Lock active cart for update
+        Cart cart = cartRepository.findByUserIdAndIsActiveTrueWithLock(userId)
+                .orElseThrow(() -> new IllegalArgumentException("Cannot checkout: cart is empty or not found. Please add items to your cart first."));
 
-                if (retryCount >= maxRetries) {
-                    throw new IllegalStateException(
-                            "Failed to complete checkout due to concurrent modifications. Please try again.", e);
-                }
+        if (cart.getItems().isEmpty()) {
+            throw new IllegalStateException("Cannot checkout empty cart");
+        }
 
-                // Exponential backoff
-                try {
-                    Thread.sleep(100 * retryCount);
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new IllegalStateException("Interrupted during checkout retry", ie);
-                }
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<Long, Integer> shardCounts = new HashMap<>();
+        for (CartItem item : cart.getItems()) {
+            Book book = item.getBook();
+
+            // Cart shows a price snapshot taken at add-time; refuse to charge a different one
+            if (item.getUnitPrice().compareTo(book.getPrice()) != 0) {
+                throw new IllegalStateException(
+                        String.format("Price changed for book '%s'. Was: %s, Now: %s. Please review your cart.",
+                                book.getTitle(), item.getUnitPrice(), book.getPrice()));
             }
+
+            quantities.merge(book.getId(), item.getQuantity(), Integer::sum);
+            if (InventoryService.isSharded(book)) {
+                shardCounts.put(book.getId(), book.getStockShards());
+            }
+        }
+
+        // Generate unique order number unless one was handed out already
+        if (orderNumber == null) {
+            orderNumber = orderNumberGenerator.next();
         }
 
-        throw new IllegalStateException("Failed to complete checkout after retries");
+        // Create order - the user is only needed as a foreign key, so attach an unloaded reference
+        userExistenceCache.requireExists(userId);
+
+        Order order = Order.builder()
+                .orderNumber(orderNumber)
+                .user(userRepository.getReferenceById(userId))
+                .status(OrderStatus.CONFIRMED)
+                .build();
+
+        // Create order items
+        List<OrderItem> orderItems = cart.getItems().stream()
+                .map(cartItem -> OrderItem.builder()
+                        .order(order)
+                        .book(cartItem.getBook())
+                        .quantity(cartItem.getQuantity())
+                        .unitPrice(cartItem.getUnitPrice())
+                        .subtotal(cartItem.getSubtotal())
+                        .build())
+                .collect(Collectors.toList());
+
+        order.setItems(orderItems);
+
+        BigDecimal totalAmount = orderItems.stream()
+                .map(OrderItem::getSubtotal)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+
+        order.setTotalAmount(totalAmount);
+
+        return new PendingOrder(cart, order, quantities, shardCounts);
     }
 
-    private String generateOrderNumber() {
-        return "ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase() +
-               "-" + System.currentTimeMillis();
+    /**
+     * Inserts the order and writes the cart deactivation event to the outbox
+     * Caller must already have decremented stock for pending.quantities()
+     * Same transaction contract as prepareOrder
+     */
+    private OrderResponse placeOrder(PendingOrder pending) {
+        Long userId = pending.cart().getUserId();
+        String orderNumber = pending.order().getOrderNumber();
+
+        // Save order; the registry rejects a number already taken, even across order partitions
+        orderNumberRegistry.register(orderNumber);
+        Order savedOrder = orderRepository.save(pending.order());
+        orderChangeService.record(List.of(savedOrder.getId()));
+        Map<String, Number> counterDeltas = new HashMap<>();
+        counterDeltas.put(CounterService.ordersByStatus(savedOrder.getStatus()), 1);
+        if (savedOrder.getStatus().countsAsRevenue()) {
+            counterDeltas.put(CounterService.ORDERS_REVENUE, savedOrder.getTotalAmount());
+        }
+        counterService.add(counterDeltas);
+
+        // Cart deactivation event goes out with this transaction's commit (see OutboxRelayJob)
+        Map<String, Object> eventPayload = new HashMap<>();
+        eventPayload.put("userId", userId);
+        eventPayload.put("cartId", pending.cart().getId());
+        eventPayload.put("orderNumber", orderNumber);
+        outboxService.enqueue(CART_DEACTIVATED_TOPIC, String.valueOf(userId), eventPayload);
+
+        log.info("Order created successfully: {} for user: {}", orderNumber, userId);
+
+        OrderResponse response = buildOrderResponse(savedOrder);
+        orderSnapshotCache.put(userId, response);
+        return response;
     }
 
     private OrderResponse buildOrderResponse(Order order) {
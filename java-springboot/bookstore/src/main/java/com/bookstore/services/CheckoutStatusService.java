@@ -0,0 +1,110 @@
+package com.bookstore.services;
+
+import com.bookstore.dto.CheckoutStatusResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Status of async checkouts, stored in Redis so any instance can answer polls
+ * Every update is also published on a Redis channel; each instance pushes it to the
+ * SSE subscribers it holds (see SseBroadcaster), so the worker and the subscriber can be on different nodes
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CheckoutStatusService implements MessageListener {
+
+    public static final String STATUS_CHANNEL = "checkout:status:events";
+
+    private static final String STATUS_KEY_PREFIX = "checkout:status:";
+    private static final Duration STATUS_TTL = Duration.ofDays(1);
+    private static final Duration SSE_TIMEOUT = Duration.ofMinutes(2);
+    private static final String EVENT = "checkout-status";
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final SseBroadcaster sseBroadcaster;
+
+    public void update(CheckoutStatusResponse status) {
+        status.setUpdatedAt(LocalDateTime.now());
+        try {
+            String json = objectMapper.writeValueAsString(status);
+            redisTemplate.opsForValue().set(STATUS_KEY_PREFIX + status.getOrderNumber(), json, STATUS_TTL);
+            redisTemplate.convertAndSend(STATUS_CHANNEL, json);
+        } catch (IOException e) {
+            log.error("Failed to serialize checkout status for order {}", status.getOrderNumber(), e);
+        }
+    }
+
+    public Optional<CheckoutStatusResponse> get(String orderNumber) {
+        String json = redisTemplate.opsForValue().get(STATUS_KEY_PREFIX + orderNumber);
+        if (json == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(objectMapper.readValue(json, CheckoutStatusResponse.class));
+        } catch (IOException e) {
+            log.error("Failed to parse checkout status for order {}", orderNumber, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Streams status updates for one order; sends the current status right away
+     * and completes the stream once the checkout finished
+     */
+    public SseEmitter subscribe(CheckoutStatusResponse current) {
+        String orderNumber = current.getOrderNumber();
+        if (current.isFinished()) {
+            SseEmitter emitter = new SseEmitter(SSE_TIMEOUT.toMillis());
+            if (sseBroadcaster.send(emitter, EVENT, current)) {
+                emitter.complete();
+            }
+            return emitter;
+        }
+
+        SseEmitter emitter = sseBroadcaster.subscribe(topic(orderNumber), SSE_TIMEOUT);
+        sseBroadcaster.send(emitter, EVENT, current);
+
+        // The checkout may have finished between the caller's read and registration
+        get(orderNumber).filter(CheckoutStatusResponse::isFinished).ifPresent(latest -> {
+            if (sseBroadcaster.send(emitter, EVENT, latest)) {
+                emitter.complete();
+            }
+        });
+        return emitter;
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CheckoutStatusResponse status;
+        try {
+            status = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), CheckoutStatusResponse.class);
+        } catch (IOException e) {
+            log.warn("Ignoring malformed checkout status event", e);
+            return;
+        }
+
+        String topic = topic(status.getOrderNumber());
+        sseBroadcaster.send(topic, EVENT, status);
+        if (status.isFinished()) {
+            sseBroadcaster.complete(topic);
+        }
+    }
+
+    private String topic(String orderNumber) {
+        return "checkout-status:" + orderNumber;
+    }
+}
@@ -0,0 +1,169 @@
+package com.bookstore.services;
+
+import com.bookstore.domain.order.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Counters maintained incrementally in the same transactions as the changes they count
+ *
+ * Each counter is spread over counter.shards rows of counter_shards; add() upserts into one
+ * random slot, so checkouts don't serialize on a single hot row, and reads sum the slots.
+ * Counters that describe existing data are seeded once from a baseline query under a
+ * table lock (see seed), after which only deltas are applied.
+ */
+@Service
+@Slf4j
+public class CounterService {
+
+    public static final String ORDERS_BY_STATUS_PREFIX = "orders.status.";
+    public static final String ORDERS_REVENUE = "orders.revenue";
+    public static final String BOOKS_TOTAL = "books.total";
+    public static final String BOOKS_OUT_OF_STOCK = "books.out_of_stock";
+    public static final String USERS_TOTAL = "users.total";
+
+    private static final String SEEDED_PREFIX = "_seeded.";
+
+    private static final String ADD_SQL =
+            "INSERT INTO counter_shards (name, shard, value) VALUES (?, ?, ?) " +
+            "ON CONFLICT (name, shard) DO UPDATE SET value = counter_shards.value + EXCLUDED.value";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int shards;
+
+    public CounterService(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate transactionTemplate,
+            @Value("${counter.shards:16}") int shards
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.shards = shards;
+    }
+
+    public static String ordersByStatus(OrderStatus status) {
+        return ORDERS_BY_STATUS_PREFIX + status.name();
+    }
+
+    /**
+     * Change in the out-of-stock count when a book's stock goes from before to after
+     */
+    public static int outOfStockDelta(int before, int after) {
+        if (before > 0 && after == 0) {
+            return 1;
+        }
+        if (before == 0 && after > 0) {
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Applies deltas (counter name -> amount) as part of the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(Map<String, ? extends Number> deltas) {
+        // Name order keeps row lock order deterministic across writers
+        List<Map.Entry<String, BigDecimal>> ordered = new ArrayList<>();
+        new TreeMap<>(deltas).forEach((name, delta) -> {
+            BigDecimal amount = delta instanceof BigDecimal decimal ? decimal : BigDecimal.valueOf(delta.longValue());
+            if (amount.signum() != 0) {
+                ordered.add(Map.entry(name, amount));
+            }
+        });
+        if (ordered.isEmpty()) {
+            return;
+        }
+
+        int shard = ThreadLocalRandom.current().nextInt(shards);
+        jdbcTemplate.batchUpdate(ADD_SQL, ordered, ordered.size(), (ps, entry) -> {
+            ps.setString(1, entry.getKey());
+            ps.setInt(2, shard);
+            ps.setBigDecimal(3, entry.getValue());
+        });
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void add(String name, Number delta) {
+        add(Map.of(name, delta));
+    }
+
+    /**
+     * Current values of all counters whose name starts with prefix
+     */
+    public Map<String, BigDecimal> getAll(String prefix) {
+        Map<String, BigDecimal> values = new HashMap<>();
+        jdbcTemplate.query("SELECT name, SUM(value) AS value FROM counter_shards WHERE name LIKE ? GROUP BY name",
+                rs -> {
+                    values.put(rs.getString("name"), rs.getBigDecimal("value"));
+                }, prefix + "%");
+        return values;
+    }
+
+    public long getLong(String name) {
+        BigDecimal value = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(value), 0) FROM counter_shards WHERE name = ?", BigDecimal.class, name);
+        return value != null ? value.longValue() : 0;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void seedCounters() {
+        seed("orders.status", "orders",
+                "SELECT '" + ORDERS_BY_STATUS_PREFIX + "' || status AS name, count(*) AS value FROM orders GROUP BY status");
+        seed(ORDERS_REVENUE, "orders",
+                "SELECT '" + ORDERS_REVENUE + "' AS name, COALESCE(SUM(total_amount), 0) AS value FROM orders " +
+                "WHERE status IN ('CONFIRMED', 'PROCESSING', 'SHIPPED', 'DELIVERED')");
+        seed("books", "books",
+                "SELECT '" + BOOKS_TOTAL + "' AS name, count(*) AS value FROM books " +
+                "UNION ALL SELECT '" + BOOKS_OUT_OF_STOCK + "', count(*) FROM books WHERE stock = 0");
+        seed(USERS_TOTAL, "users",
+                "SELECT '" + USERS_TOTAL + "' AS name, count(*) AS value FROM users");
+    }
+
+    /**
+     * Seeds a group of counters from baselineSql (rows of name, value) unless already done
+     * The source table is locked in SHARE mode while the baseline is taken, so no writer can
+     * commit a change (and its delta) in between; deltas applied before seeding are replaced
+     */
+    void seed(String group, String lockTable, String baselineSql) {
+        String marker = SEEDED_PREFIX + group;
+        if (getLong(marker) > 0) {
+            return;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // One instance seeds; others wait on the lock and then see the marker
+            jdbcTemplate.execute("LOCK TABLE " + lockTable + " IN SHARE MODE");
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('" + marker + "'))");
+            if (getLong(marker) > 0) {
+                return;
+            }
+
+            List<Map<String, Object>> baseline = jdbcTemplate.queryForList(baselineSql);
+            jdbcTemplate.update("DELETE FROM counter_shards WHERE name = ? OR name LIKE ?", group, group + ".%");
+            jdbcTemplate.batchUpdate("INSERT INTO counter_shards (name, shard, value) VALUES (?, 0, ?)",
+                    baseline, baseline.size(), (ps, row) -> {
+                        ps.setString(1, row.get("name").toString());
+                        ps.setBigDecimal(2, new BigDecimal(row.get("value").toString()));
+                    });
+            jdbcTemplate.update("INSERT INTO counter_shards (name, shard, value) VALUES (?, 0, 1)", marker);
+            log.info("Seeded {} counters of group {}", baseline.size(), group);
+        });
+    }
+}
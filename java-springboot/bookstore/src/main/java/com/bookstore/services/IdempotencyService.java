@@ -0,0 +1,281 @@
+package com.bookstore.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Idempotency-Key support for write endpoints, backed by Redis
+ *
+ * The first request with a key claims it (SET NX, short TTL) and runs; a 2xx response is then
+ * stored under the key for replay. Retries with the same key get the stored response without
+ * touching the database, 409 while the first request is still running, and 422 if the key is
+ * reused for a different request. Failures release the key so the client can retry.
+ * The claim carries a random token and is renewed every third of its TTL while the request runs,
+ * so a slow checkout keeps it; storing and releasing only act on the key while it still holds
+ * that token, so a request whose claim did lapse can't overwrite or drop the next owner's.
+ * Renewals run on their own scheduler threads, so long @Scheduled jobs on the shared scheduler
+ * can't let a claim lapse mid-request. Keys are scoped per user and operation. Best-effort: if
+ * Redis is unavailable the request simply runs without idempotency (no claim, nothing stored).
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    private static final String KEY_PREFIX = "idempotency:";
+    private static final int MAX_KEY_LENGTH = 128;
+
+    // ARGV[1] is the owner's claim token; each script returns 1 if the key was still owned
+    private static final RedisScript<Long> RENEW = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current and cjson.decode(current).token == ARGV[1] then
+                return redis.call('PEXPIRE', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+    private static final RedisScript<Long> STORE = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current and cjson.decode(current).token == ARGV[1] then
+                redis.call('SET', KEYS[1], ARGV[2], 'PX', ARGV[3])
+                return 1
+            end
+            return 0
+            """, Long.class);
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            local current = redis.call('GET', KEYS[1])
+            if current and cjson.decode(current).token == ARGV[1] then
+                return redis.call('DEL', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    // token is null once completed
+    private record StoredResponse(boolean completed, String token, String fingerprint, int status, String body) {
+    }
+
+    // A claimed key: its token and the renewal keeping it alive; NONE when running without idempotency
+    private record Claim(String redisKey, String token, ScheduledFuture<?> renewal) {
+        static final Claim NONE = new Claim(null, null, null);
+    }
+
+    // Outcome of trying to claim a key: owned, run unguarded, or send response (replay, 409, 422) instead
+    private record ClaimAttempt<T>(boolean owned, ResponseEntity<T> response) {
+        static <T> ClaimAttempt<T> claimed() {
+            return new ClaimAttempt<>(true, null);
+        }
+
+        static <T> ClaimAttempt<T> unguarded() {
+            return new ClaimAttempt<>(false, null);
+        }
+
+        static <T> ClaimAttempt<T> respond(ResponseEntity<T> response) {
+            return new ClaimAttempt<>(false, response);
+        }
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService renewals = Executors.newScheduledThreadPool(2,
+            Thread.ofPlatform().name("idempotency-renewal-", 0).daemon().factory());
+    private final Duration inFlightTtl;
+    private final Duration completedTtl;
+
+    public IdempotencyService(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${idempotency.in-flight-ttl:PT30S}") Duration inFlightTtl,
+            @Value("${idempotency.completed-ttl:PT24H}") Duration completedTtl
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.inFlightTtl = inFlightTtl;
+        this.completedTtl = completedTtl;
+    }
+
+    /**
+     * Runs action once per (user, operation, key); request is what identifies the call (body or path ids)
+     */
+    public <T> ResponseEntity<T> execute(Long userId, String operation, String key, Object request,
+                                         Class<T> responseType, Supplier<ResponseEntity<T>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        String redisKey = redisKey(userId, operation, key);
+        String fingerprint = fingerprint(request);
+
+        String token = UUID.randomUUID().toString();
+        ClaimAttempt<T> attempt = claim(redisKey, key, token, fingerprint, responseType);
+        if (attempt.response() != null) {
+            return attempt.response();
+        }
+
+        Claim claim = attempt.owned() ? keepClaimed(redisKey, token) : Claim.NONE;
+        ResponseEntity<T> response;
+        try {
+            response = action.get();
+        } catch (RuntimeException e) {
+            release(claim);
+            throw e;
+        }
+        store(claim, fingerprint, response);
+        return response;
+    }
+
+    /**
+     * Same as execute for endpoints that complete asynchronously
+     */
+    public <T> CompletableFuture<ResponseEntity<T>> executeAsync(Long userId, String operation, String key, Object request,
+                                                                 Class<T> responseType,
+                                                                 Supplier<CompletableFuture<ResponseEntity<T>>> action) {
+        if (key == null) {
+            return action.get();
+        }
+        String redisKey = redisKey(userId, operation, key);
+        String fingerprint = fingerprint(request);
+
+        String token = UUID.randomUUID().toString();
+        ClaimAttempt<T> attempt = claim(redisKey, key, token, fingerprint, responseType);
+        if (attempt.response() != null) {
+            return CompletableFuture.completedFuture(attempt.response());
+        }
+
+        Claim claim = attempt.owned() ? keepClaimed(redisKey, token) : Claim.NONE;
+        CompletableFuture<ResponseEntity<T>> result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            release(claim);
+            throw e;
+        }
+        return result.whenComplete((response, ex) -> {
+            if (ex == null) {
+                store(claim, fingerprint, response);
+            } else {
+                release(claim);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renewals.shutdownNow();
+    }
+
+    private <T> ClaimAttempt<T> claim(String redisKey, String key, String token, String fingerprint,
+                                      Class<T> responseType) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            return ClaimAttempt.respond(ResponseEntity.badRequest().build());
+        }
+
+        try {
+            String inFlight = objectMapper.writeValueAsString(new StoredResponse(false, token, fingerprint, 0, null));
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(redisKey, inFlight, inFlightTtl))) {
+                return ClaimAttempt.claimed();
+            }
+
+            String json = redisTemplate.opsForValue().get(redisKey);
+            if (json == null) {
+                // Expired or released between the two calls - run without the guarantee rather than fail
+                return ClaimAttempt.unguarded();
+            }
+            StoredResponse stored = objectMapper.readValue(json, StoredResponse.class);
+            if (!stored.fingerprint().equals(fingerprint)) {
+                return ClaimAttempt.respond(ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY).build());
+            }
+            if (!stored.completed()) {
+                return ClaimAttempt.respond(ResponseEntity.status(HttpStatus.CONFLICT).build());
+            }
+
+            T body = stored.body() != null ? objectMapper.readValue(stored.body(), responseType) : null;
+            return ClaimAttempt.respond(ResponseEntity.status(stored.status())
+                    .header("Idempotent-Replayed", "true")
+                    .body(body));
+        } catch (Exception e) {
+            log.warn("Idempotency store unavailable for {}, running request without it", redisKey, e);
+            return ClaimAttempt.unguarded();
+        }
+    }
+
+    private Claim keepClaimed(String redisKey, String token) {
+        long periodMs = inFlightTtl.dividedBy(3).toMillis();
+        ScheduledFuture<?> renewal = renewals.scheduleAtFixedRate(() -> {
+            try {
+                redisTemplate.execute(RENEW, List.of(redisKey), token, String.valueOf(inFlightTtl.toMillis()));
+            } catch (Exception e) {
+                log.warn("Failed to renew idempotency key {}", redisKey, e);
+            }
+        }, periodMs, periodMs, TimeUnit.MILLISECONDS);
+        return new Claim(redisKey, token, renewal);
+    }
+
+    private void store(Claim claim, String fingerprint, ResponseEntity<?> response) {
+        if (claim == Claim.NONE) {
+            return;
+        }
+        if (response == null || !response.getStatusCode().is2xxSuccessful()) {
+            // Only successes are replayed; anything else may succeed on a retry
+            release(claim);
+            return;
+        }
+        claim.renewal().cancel(false);
+        try {
+            String body = response.getBody() != null ? objectMapper.writeValueAsString(response.getBody()) : null;
+            String json = objectMapper.writeValueAsString(
+                    new StoredResponse(true, null, fingerprint, response.getStatusCode().value(), body));
+            Long stored = redisTemplate.execute(STORE, List.of(claim.redisKey()), claim.token(), json,
+                    String.valueOf(completedTtl.toMillis()));
+            if (!Long.valueOf(1).equals(stored)) {
+                log.warn("Idempotency key {} was no longer held, response not stored", claim.redisKey());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to store idempotent response for {}", claim.redisKey(), e);
+            release(claim);
+        }
+    }
+
+    private void release(Claim claim) {
+        if (claim == Claim.NONE) {
+            return;
+        }
+        claim.renewal().cancel(false);
+        try {
+            redisTemplate.execute(RELEASE, List.of(claim.redisKey()), claim.token());
+        } catch (Exception e) {
+            log.warn("Failed to release idempotency key {}", claim.redisKey(), e);
+        }
+    }
+
+    private String fingerprint(Object request) {
+        try {
+            String json = request != null ? objectMapper.writeValueAsString(request) : "";
+            return Hashing.sha256().hashString(json, StandardCharsets.UTF_8).toString();
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Request cannot be fingerprinted", e);
+        }
+    }
+
+    private String redisKey(Long userId, String operation, String key) {
+        return KEY_PREFIX + userId + ":" + operation + ":" + key;
+    }
+}
@@ -0,0 +1,387 @@
+package com.bookstore.services;
+
+import com.bookstore.domain.book.Book;
+import com.bookstore.repository.BookRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Stock mutations for checkout
+ *
+ * Default strategy ("conditional-update") issues one
+ * UPDATE books SET stock = stock - ? WHERE id = ? AND stock >= ?
+ * per book as a single JDBC batch, in ascending id order so concurrent checkouts
+ * always take row locks in the same order. Rows are only locked from the UPDATE
+ * until commit, instead of for the whole checkout.
+ *
+ * "pessimistic-lock" keeps the old SELECT ... FOR UPDATE + saveAll path for comparison.
+ * Both record bookstore.checkout.stock.lock.hold{strategy} from first lock to transaction end.
+ *
+ * Books opted into sharding (books.stock_shards = K) keep their stock in K rows of
+ * book_stock_shards; books.stock is then only the visible aggregate.
+ *
+ * Every change here that moves books.stock to or from zero is applied to the
+ * books.out_of_stock counter in the same transaction.
+ */
+@Service
+@Slf4j
+public class InventoryService {
+
+    public static final String STRATEGY_CONDITIONAL_UPDATE = "conditional-update";
+    public static final String STRATEGY_PESSIMISTIC_LOCK = "pessimistic-lock";
+
+    // stock_shards guard: a book sharded after the caller read it must not be decremented here
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE books SET stock = stock - ?, version = version + 1, updated_at = now() " +
+            "WHERE id = ? AND stock >= ? AND stock_shards IS NULL";
+
+    private static final String RESTORE_STOCK_SQL =
+            "UPDATE books SET stock = stock + ?, version = version + 1, updated_at = now() " +
+            "WHERE id = ? AND stock_shards IS NULL";
+
+    private static final String DECREMENT_SHARD_SQL =
+            "UPDATE book_stock_shards SET stock = stock - ? WHERE book_id = ? AND shard = ? AND stock >= ?";
+
+    private static final String INCREMENT_SHARD_SQL =
+            "UPDATE book_stock_shards SET stock = stock + ? WHERE book_id = ? AND shard = ?";
+
+    private static final String LOCK_SHARDS_SQL =
+            "SELECT shard, stock FROM book_stock_shards WHERE book_id = ? ORDER BY shard FOR UPDATE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BookRepository bookRepository;
+    private final CounterService counterService;
+    private final String strategy;
+    private final Timer lockHoldTimer;
+
+    public InventoryService(
+            JdbcTemplate jdbcTemplate,
+            BookRepository bookRepository,
+            CounterService counterService,
+            MeterRegistry meterRegistry,
+            @Value("${checkout.stock.strategy:" + STRATEGY_CONDITIONAL_UPDATE + "}") String strategy
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.bookRepository = bookRepository;
+        this.counterService = counterService;
+        this.strategy = strategy;
+        this.lockHoldTimer = Timer.builder("bookstore.checkout.stock.lock.hold")
+                .tag("strategy", strategy)
+                .description("Time book rows stay locked during checkout, from first lock to commit/rollback")
+                .register(meterRegistry);
+    }
+
+    public static boolean isSharded(Book book) {
+        return book.getStockShards() != null && book.getStockShards() > 0;
+    }
+
+    /**
+     * Decrements stock for every book in quantities (bookId -> quantity)
+     * Sharded books (see isSharded) are decremented through their counter slots instead of books.stock
+     * Must run inside the caller's transaction; throws IllegalStateException if any book is short,
+     * which rolls back the decrements already applied
+     * Returns the resulting stock of the unsharded books (sharded ones are only summed by the sync job)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Integer> decrementStock(Map<Long, Integer> quantities, Map<Long, Integer> shardCounts) {
+        long lockStart = System.nanoTime();
+        recordLockHoldOnCompletion(lockStart);
+
+        Map<Long, Integer> unsharded = new TreeMap<>();
+        quantities.forEach((bookId, quantity) -> {
+            if (!shardCounts.containsKey(bookId)) {
+                unsharded.put(bookId, quantity);
+            }
+        });
+
+        Map<Long, Integer> stockAfter = new HashMap<>();
+        if (!unsharded.isEmpty()) {
+            stockAfter = STRATEGY_PESSIMISTIC_LOCK.equals(strategy)
+                    ? decrementWithLock(unsharded)
+                    : decrementWithConditionalUpdate(unsharded);
+        }
+
+        // Ascending book id, same as the unsharded batch, so lock order stays deterministic
+        new TreeMap<>(shardCounts).forEach((bookId, shards) ->
+                decrementSharded(bookId, quantities.get(bookId), shards));
+        return stockAfter;
+    }
+
+    /**
+     * Splits a book's stock evenly across the given number of counter slots, or folds it back
+     * into books.stock when shards is 0
+     */
+    @Transactional
+    @CacheEvict(value = "book", key = "#bookId")
+    public Book reshardStock(Long bookId, int shards) {
+        if (shards < 0) {
+            throw new IllegalArgumentException("Shard count cannot be negative");
+        }
+
+        List<Book> locked = bookRepository.findByIdsWithLock(List.of(bookId));
+        if (locked.isEmpty()) {
+            throw new IllegalArgumentException("Book not found");
+        }
+        Book book = locked.get(0);
+
+        int total = isSharded(book)
+                ? lockShards(bookId).values().stream().mapToInt(Integer::intValue).sum()
+                : book.getStock();
+
+        jdbcTemplate.update("DELETE FROM book_stock_shards WHERE book_id = ?", bookId);
+
+        if (shards > 0) {
+            List<int[]> slots = new ArrayList<>(shards);
+            for (int shard = 0; shard < shards; shard++) {
+                // Remainder goes to the first slots
+                slots.add(new int[]{shard, total / shards + (shard < total % shards ? 1 : 0)});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO book_stock_shards (book_id, shard, stock) VALUES (?, ?, ?)",
+                    slots, slots.size(), (ps, slot) -> {
+                        ps.setLong(1, bookId);
+                        ps.setInt(2, slot[0]);
+                        ps.setInt(3, slot[1]);
+                    });
+        }
+
+        counterService.add(CounterService.BOOKS_OUT_OF_STOCK, CounterService.outOfStockDelta(book.getStock(), total));
+        book.setStockShards(shards > 0 ? shards : null);
+        book.setStock(total);
+        log.info("Resharded stock of book {} into {} slots (total {})", bookId, shards, total);
+        return bookRepository.save(book);
+    }
+
+    /**
+     * Gives stock back (bookId -> quantity), e.g. for cancelled orders
+     * One JDBC batch in ascending id order; sharded books get the quantity on one of their slots
+     * Returns the resulting stock per book (the slot total for sharded books)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Map<Long, Integer> restoreStock(Map<Long, Integer> quantities) {
+        List<Map.Entry<Long, Integer>> ordered = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+        Map<Long, Integer> stockAfter = new HashMap<>();
+        if (ordered.isEmpty()) {
+            return stockAfter;
+        }
+
+        int[][] updateCounts = jdbcTemplate.batchUpdate(RESTORE_STOCK_SQL, ordered, ordered.size(),
+                (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                });
+
+        List<Long> restored = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            Map.Entry<Long, Integer> entry = ordered.get(i);
+            if (updateCounts[0][i] > 0) {
+                restored.add(entry.getKey());
+            } else {
+                List<Integer> shards = jdbcTemplate.queryForList(
+                        "SELECT stock_shards FROM books WHERE id = ?", Integer.class, entry.getKey());
+                if (shards.isEmpty() || shards.get(0) == null) {
+                    throw new IllegalArgumentException("Book not found: " + entry.getKey());
+                }
+                stockAfter.put(entry.getKey(), adjustShardedStock(entry.getKey(), entry.getValue(), shards.get(0)));
+            }
+        }
+
+        if (!restored.isEmpty()) {
+            Map<Long, Integer> restoredStock = readStock(restored);
+            // A book now holding exactly the restored quantity was out of stock before
+            long refilled = restoredStock.entrySet().stream()
+                    .filter(entry -> entry.getValue().equals(quantities.get(entry.getKey())))
+                    .count();
+            counterService.add(CounterService.BOOKS_OUT_OF_STOCK, -refilled);
+            stockAfter.putAll(restoredStock);
+        }
+        return stockAfter;
+    }
+
+    /**
+     * Applies an admin stock adjustment to a sharded book and returns the new aggregate
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public int adjustShardedStock(Long bookId, int delta, int shards) {
+        if (delta > 0) {
+            int shard = ThreadLocalRandom.current().nextInt(shards);
+            jdbcTemplate.update(INCREMENT_SHARD_SQL, delta, bookId, shard);
+        } else if (delta < 0) {
+            decrementSharded(bookId, -delta, shards);
+        }
+        return sumShards(bookId);
+    }
+
+    private Map<Long, Integer> decrementWithConditionalUpdate(Map<Long, Integer> quantities) {
+        // Deterministic lock order across concurrent checkouts
+        List<Map.Entry<Long, Integer>> ordered = new ArrayList<>(new TreeMap<>(quantities).entrySet());
+
+        int[][] updateCounts = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, ordered, ordered.size(),
+                (ps, entry) -> {
+                    ps.setInt(1, entry.getValue());
+                    ps.setLong(2, entry.getKey());
+                    ps.setInt(3, entry.getValue());
+                });
+
+        for (int i = 0; i < ordered.size(); i++) {
+            if (updateCounts[0][i] == 0) {
+                Map.Entry<Long, Integer> entry = ordered.get(i);
+                throw insufficientStock(entry.getKey(), entry.getValue());
+            }
+        }
+
+        Map<Long, Integer> stockAfter = readStock(quantities.keySet());
+        long emptied = stockAfter.values().stream().filter(stock -> stock == 0).count();
+        counterService.add(CounterService.BOOKS_OUT_OF_STOCK, emptied);
+        return stockAfter;
+    }
+
+    private Map<Long, Integer> decrementWithLock(Map<Long, Integer> quantities) {
+        List<Book> books = bookRepository.findByIdsWithLock(new ArrayList<>(quantities.keySet()));
+        Map<Long, Book> booksMap = books.stream()
+                .collect(Collectors.toMap(Book::getId, Function.identity()));
+
+        int outOfStockDelta = 0;
+        Map<Long, Integer> stockAfter = new HashMap<>();
+        for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+            Book book = booksMap.get(entry.getKey());
+            if (book == null) {
+                throw new IllegalArgumentException("Book not found: " + entry.getKey());
+            }
+            if (book.getStock() < entry.getValue()) {
+                throw new IllegalStateException(
+                        String.format("Insufficient stock for book '%s'. Available: %d, Requested: %d",
+                                book.getTitle(), book.getStock(), entry.getValue()));
+            }
+            int before = book.getStock();
+            book.setStock(before - entry.getValue());
+            outOfStockDelta += CounterService.outOfStockDelta(before, book.getStock());
+            stockAfter.put(book.getId(), book.getStock());
+        }
+
+        bookRepository.saveAll(books);
+        counterService.add(CounterService.BOOKS_OUT_OF_STOCK, outOfStockDelta);
+        return stockAfter;
+    }
+
+    /**
+     * Tries slots starting from a random one; a conditional UPDATE on a slot that can't
+     * cover the quantity matches nothing and locks nothing. If no single slot suffices
+     * (stock is nearly gone), drains slots in shard order under lock.
+     */
+    private void decrementSharded(Long bookId, int quantity, int shards) {
+        int start = ThreadLocalRandom.current().nextInt(shards);
+        for (int i = 0; i < shards; i++) {
+            int shard = (start + i) % shards;
+            if (jdbcTemplate.update(DECREMENT_SHARD_SQL, quantity, bookId, shard, quantity) == 1) {
+                return;
+            }
+        }
+
+        Map<Integer, Integer> slots = lockShards(bookId);
+        int available = slots.values().stream().mapToInt(Integer::intValue).sum();
+        if (available < quantity) {
+            throw insufficientStock(bookId, quantity, available);
+        }
+
+        int remaining = quantity;
+        for (Map.Entry<Integer, Integer> slot : slots.entrySet()) {
+            if (remaining == 0) {
+                break;
+            }
+            int taken = Math.min(slot.getValue(), remaining);
+            if (taken > 0) {
+                jdbcTemplate.update(DECREMENT_SHARD_SQL, taken, bookId, slot.getKey(), taken);
+                remaining -= taken;
+            }
+        }
+    }
+
+    /**
+     * Visible stock of a sharded book
+     */
+    public int sumShards(Long bookId) {
+        Integer total = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(stock), 0) FROM book_stock_shards WHERE book_id = ?", Integer.class, bookId);
+        return total != null ? total : 0;
+    }
+
+    /**
+     * Current books.stock (bookId -> stock)
+     * Only called for rows this transaction has just updated, so their values can't move before commit
+     */
+    private Map<Long, Integer> readStock(Collection<Long> bookIds) {
+        Map<Long, Integer> stock = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT id, stock FROM books WHERE id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("bigint", bookIds.toArray()));
+            return ps;
+        }, rs -> {
+            stock.put(rs.getLong("id"), rs.getInt("stock"));
+        });
+        return stock;
+    }
+
+    // shard -> stock, rows locked in shard order
+    private Map<Integer, Integer> lockShards(Long bookId) {
+        Map<Integer, Integer> slots = new TreeMap<>();
+        jdbcTemplate.query(LOCK_SHARDS_SQL, rs -> {
+            slots.put(rs.getInt("shard"), rs.getInt("stock"));
+        }, bookId);
+        return slots;
+    }
+
+    /**
+     * Only reached on failure, so the extra read is off the hot path
+     */
+    private RuntimeException insufficientStock(Long bookId, int requested) {
+        return insufficientStock(bookId, requested, null);
+    }
+
+    private RuntimeException insufficientStock(Long bookId, int requested, Integer available) {
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList(
+                "SELECT title, stock, stock_shards FROM books WHERE id = ?", bookId);
+        if (rows.isEmpty()) {
+            return new IllegalArgumentException("Book not found: " + bookId);
+        }
+        Map<String, Object> row = rows.get(0);
+        if (available == null && row.get("stock_shards") != null) {
+            // Sharded between the caller's read and our UPDATE - let the client retry
+            return new IllegalStateException(
+                    String.format("Stock for book '%s' is being rebalanced. Please try again.", row.get("title")));
+        }
+        int stock = available != null ? available : ((Number) row.get("stock")).intValue();
+        return new IllegalStateException(
+                String.format("Insufficient stock for book '%s'. Available: %d, Requested: %d",
+                        row.get("title"), stock, requested));
+    }
+
+    private void recordLockHoldOnCompletion(long lockStart) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lockHoldTimer.record(System.nanoTime() - lockStart, TimeUnit.NANOSECONDS);
+            }
+        });
+    }
+}
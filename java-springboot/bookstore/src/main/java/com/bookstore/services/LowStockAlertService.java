@@ -0,0 +1,198 @@
+package com.bookstore.services;
+
+import com.bookstore.domain.book.LowStockAlert;
+import com.bookstore.dto.LowStockAlertEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Raises low-stock alerts from the stock changes themselves instead of scanning books
+ *
+ * Every change that reaches the stock ledger (and the sharded stock sync) is checked for a
+ * downward threshold crossing: LOW when stock falls to inventory.low-stock.threshold or below,
+ * OUT_OF_STOCK when it reaches zero. Changes that cross nothing cost no query at all.
+ * A crossing claims its (book, level) row in low_stock_alerts, which suppresses repeats within
+ * inventory.low-stock.dedup-window while stock hovers around the threshold; claimed alerts go
+ * to LOW_STOCK_ALERT through the outbox and, after commit, to every instance's admin SSE
+ * clients over a Redis channel.
+ */
+@Service
+@Slf4j
+public class LowStockAlertService implements MessageListener {
+
+    public static final String ALERT_CHANNEL = "inventory:low-stock:alerts";
+
+    private static final String LOW_STOCK_ALERT_TOPIC = "LOW_STOCK_ALERT";
+    private static final String SSE_TOPIC = "low-stock-alerts";
+    private static final Duration SSE_TIMEOUT = Duration.ofMinutes(30);
+
+    // Returns a row only if no alert of this level fired for the book within the window
+    private static final String CLAIM_SQL = """
+            INSERT INTO low_stock_alerts (book_id, level, stock, alerted_at) VALUES (?, ?, ?, now())
+            ON CONFLICT (book_id, level) DO UPDATE SET stock = EXCLUDED.stock, alerted_at = EXCLUDED.alerted_at
+            WHERE low_stock_alerts.alerted_at < now() - CAST(? AS interval)
+            RETURNING alerted_at
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OutboxService outboxService;
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final SseBroadcaster sseBroadcaster;
+    private final int threshold;
+    private final Duration dedupWindow;
+
+    public LowStockAlertService(
+            JdbcTemplate jdbcTemplate,
+            OutboxService outboxService,
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            SseBroadcaster sseBroadcaster,
+            @Value("${inventory.low-stock.threshold:10}") int threshold,
+            @Value("${inventory.low-stock.dedup-window:PT1H}") Duration dedupWindow
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.outboxService = outboxService;
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.sseBroadcaster = sseBroadcaster;
+        this.threshold = threshold;
+        this.dedupWindow = dedupWindow;
+    }
+
+    /**
+     * Checks stock changes for threshold crossings as part of the caller's transaction
+     * Changes without a known stockAfter are skipped; the sharded stock sync reports those books
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void detect(List<StockLedgerService.Movement> movements) {
+        List<LowStockAlertEvent> crossings = new ArrayList<>();
+        for (StockLedgerService.Movement movement : movements) {
+            if (movement.stockAfter() == null) {
+                continue;
+            }
+            int previous = movement.stockAfter() - movement.delta();
+            LowStockAlert.Level level = crossing(previous, movement.stockAfter());
+            if (level != null) {
+                crossings.add(LowStockAlertEvent.builder()
+                        .bookId(movement.bookId())
+                        .level(level)
+                        .previousStock(previous)
+                        .stock(movement.stockAfter())
+                        .threshold(threshold)
+                        .build());
+            }
+        }
+        if (crossings.isEmpty()) {
+            return;
+        }
+
+        // Book id order keeps low_stock_alerts row locks ordered across writers
+        crossings.sort(Comparator.comparing(LowStockAlertEvent::getBookId));
+        Map<Long, String> titles = loadTitles(crossings);
+        String window = dedupWindow.toSeconds() + " seconds";
+
+        List<LowStockAlertEvent> raised = new ArrayList<>();
+        for (LowStockAlertEvent alert : crossings) {
+            List<Timestamp> claimed = jdbcTemplate.queryForList(CLAIM_SQL, Timestamp.class,
+                    alert.getBookId(), alert.getLevel().name(), alert.getStock(), window);
+            if (claimed.isEmpty()) {
+                meterRegistry.counter("bookstore.inventory.low_stock.suppressed", "level", alert.getLevel().name()).increment();
+                continue;
+            }
+            alert.setTitle(titles.get(alert.getBookId()));
+            alert.setAlertedAt(claimed.get(0).toLocalDateTime());
+            outboxService.enqueue(LOW_STOCK_ALERT_TOPIC, String.valueOf(alert.getBookId()), alert);
+            meterRegistry.counter("bookstore.inventory.low_stock.alerts", "level", alert.getLevel().name()).increment();
+            raised.add(alert);
+        }
+
+        if (!raised.isEmpty()) {
+            afterCommit(() -> raised.forEach(this::broadcast));
+        }
+    }
+
+    /**
+     * Streams alerts raised from now on to one admin client
+     */
+    public SseEmitter subscribe() {
+        return sseBroadcaster.subscribe(SSE_TOPIC, SSE_TIMEOUT);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        LowStockAlertEvent alert;
+        try {
+            alert = objectMapper.readValue(new String(message.getBody(), StandardCharsets.UTF_8), LowStockAlertEvent.class);
+        } catch (IOException e) {
+            log.warn("Ignoring malformed low-stock alert", e);
+            return;
+        }
+
+        sseBroadcaster.send(SSE_TOPIC, "low-stock-alert", alert);
+    }
+
+    private LowStockAlert.Level crossing(int previous, int stock) {
+        if (stock == 0 && previous > 0) {
+            return LowStockAlert.Level.OUT_OF_STOCK;
+        }
+        if (stock > 0 && stock <= threshold && previous > threshold) {
+            return LowStockAlert.Level.LOW;
+        }
+        return null;
+    }
+
+    private Map<Long, String> loadTitles(List<LowStockAlertEvent> alerts) {
+        Map<Long, String> titles = new HashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement("SELECT id, title FROM books WHERE id = ANY(?)");
+            ps.setArray(1, con.createArrayOf("bigint", alerts.stream().map(LowStockAlertEvent::getBookId).distinct().toArray()));
+            return ps;
+        }, rs -> titles.put(rs.getLong("id"), rs.getString("title")));
+        return titles;
+    }
+
+    private void broadcast(LowStockAlertEvent alert) {
+        try {
+            redisTemplate.convertAndSend(ALERT_CHANNEL, objectMapper.writeValueAsString(alert));
+        } catch (Exception e) {
+            // The Kafka event is already durable in the outbox; only live admin pages miss this one
+            log.warn("Failed to broadcast low-stock alert for book {}", alert.getBookId(), e);
+        }
+    }
+
+    private void afterCommit(Runnable action) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
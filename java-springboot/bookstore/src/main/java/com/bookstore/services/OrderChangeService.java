@@ -0,0 +1,102 @@
+package com.bookstore.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.time.Duration;
+import java.util.Collection;
+
+/**
+ * Outbox-style log of order changes for readers that follow orders in commit order
+ *
+ * Every writer that inserts an order or changes its status records the order id here in its own
+ * transaction. Each row carries the writing transaction's id (pg_current_xact_id()), and every
+ * transaction below the snapshot xmin has finished, so a reader that only reads up to
+ * pg_snapshot_xmin(pg_current_snapshot()) and continues from there never skips a late commit
+ * (see AdminDashboardFeedService). Timestamps can't give that guarantee: they are taken when a
+ * transaction starts, not when it commits. Rows only need to outlive the readers' cursors and
+ * are pruned by age, except those a rollup has not consumed yet (rollup_watermarks.tx_watermark,
+ * see SalesRollupJob).
+ */
+@Service
+@Slf4j
+public class OrderChangeService {
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE IF NOT EXISTS order_changes (
+                tx_id xid8 NOT NULL DEFAULT pg_current_xact_id(),
+                order_id bigint NOT NULL,
+                created_at timestamp NOT NULL DEFAULT now()
+            )
+            """;
+
+    private static final String INSERT_SQL = "INSERT INTO order_changes (order_id) SELECT unnest(?)";
+
+    // Every transaction below the horizon has finished, so changes below it are all visible
+    private static final String HORIZON_SQL = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text";
+
+    private static final String PRUNE_SQL = """
+            DELETE FROM order_changes c
+            WHERE c.created_at < now() - CAST(? AS interval)
+              AND NOT EXISTS (SELECT 1 FROM rollup_watermarks w WHERE CAST(w.tx_watermark AS xid8) <= c.tx_id)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderChangeService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // Concurrent CREATE ... IF NOT EXISTS can still collide on the catalog
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('order-changes'))");
+            jdbcTemplate.execute(CREATE_TABLE_SQL);
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_order_changes_tx_id ON order_changes (tx_id, order_id)");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_order_changes_created_at ON order_changes (created_at)");
+        });
+    }
+
+    /**
+     * Records that the given orders changed, as part of the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", orderIds.toArray()));
+            return ps;
+        });
+    }
+
+    /**
+     * Transaction id (xid8 as text) below which every recorded change is final; readers follow
+     * the log up to it and continue from it next time
+     */
+    public String horizon() {
+        return jdbcTemplate.queryForObject(HORIZON_SQL, String.class);
+    }
+
+    /**
+     * Deletes changes older than retention that every rollup has consumed; returns how many were removed
+     */
+    public int prune(Duration retention) {
+        int removed = jdbcTemplate.update(PRUNE_SQL, retention.toSeconds() + " seconds");
+        if (removed > 0) {
+            log.debug("Pruned {} order changes older than {}", removed, retention);
+        }
+        return removed;
+    }
+}
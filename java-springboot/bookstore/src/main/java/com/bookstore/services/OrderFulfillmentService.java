@@ -0,0 +1,135 @@
+package com.bookstore.services;
+
+import com.bookstore.domain.order.OrderStatus;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Moves orders through the fulfillment pipeline (see OrderStatus.next) in chunks
+ *
+ * A chunk is one UPDATE ... WHERE status = ? AND id = ANY(?), so orders that changed status
+ * meanwhile (e.g. were cancelled) are left alone. In the same transaction the per-status
+ * counters are adjusted and one ORDER_STATUS_CHANGED event per order is written to the outbox.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderFulfillmentService {
+
+    public static final String ORDER_STATUS_CHANGED_TOPIC = "ORDER_STATUS_CHANGED";
+
+    private static final String ADVANCE_SQL = """
+            UPDATE orders SET status = ?, updated_at = now()
+            WHERE status = ? AND id = ANY(?)
+            RETURNING id, order_number, user_id, total_amount
+            """;
+
+    // Oldest first, skipping rows another transaction holds (e.g. a cancellation in progress)
+    // created_at <= updated_at, so the created_at bound only prunes partitions
+    private static final String READY_IDS_SQL = """
+            SELECT id FROM orders
+            WHERE status = ? AND updated_at < ? AND created_at < ?
+            ORDER BY id
+            LIMIT ?
+            FOR UPDATE SKIP LOCKED
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RetryExecutor retryExecutor;
+    private final CounterService counterService;
+    private final OutboxService outboxService;
+    private final OrderChangeService orderChangeService;
+    private final OrderSnapshotCache orderSnapshotCache;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Advances the given orders from one status to its successor; returns how many moved
+     */
+    public int advance(OrderStatus from, List<Long> orderIds) {
+        OrderStatus to = requireNext(from);
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        return retryExecutor.execute("order.advance",
+                () -> transactionTemplate.execute(status -> applyAdvance(from, to, orderIds)));
+    }
+
+    /**
+     * Advances up to limit orders that have been in from for longer than updatedBefore allows
+     */
+    public int advanceReady(OrderStatus from, LocalDateTime updatedBefore, int limit) {
+        OrderStatus to = requireNext(from);
+        return retryExecutor.execute("order.advance",
+                () -> transactionTemplate.execute(status -> {
+                    List<Long> ids = jdbcTemplate.queryForList(READY_IDS_SQL, Long.class,
+                            from.name(), Timestamp.valueOf(updatedBefore), Timestamp.valueOf(updatedBefore), limit);
+                    return ids.isEmpty() ? 0 : applyAdvance(from, to, ids);
+                }));
+    }
+
+    private int applyAdvance(OrderStatus from, OrderStatus to, List<Long> orderIds) {
+        Map<String, Map<String, Object>> events = new LinkedHashMap<>();
+        List<Long> movedIds = new ArrayList<>();
+        BigDecimal[] movedTotal = {BigDecimal.ZERO};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(ADVANCE_SQL);
+            ps.setString(1, to.name());
+            ps.setString(2, from.name());
+            ps.setArray(3, con.createArrayOf("bigint", orderIds.toArray()));
+            return ps;
+        }, rs -> {
+            Map<String, Object> payload = new HashMap<>();
+            payload.put("orderId", rs.getLong("id"));
+            payload.put("orderNumber", rs.getString("order_number"));
+            payload.put("userId", rs.getLong("user_id"));
+            payload.put("from", from.name());
+            payload.put("to", to.name());
+            events.put(rs.getString("order_number"), payload);
+            movedIds.add(rs.getLong("id"));
+            movedTotal[0] = movedTotal[0].add(rs.getBigDecimal("total_amount"));
+        });
+
+        int moved = events.size();
+        if (moved == 0) {
+            return 0;
+        }
+
+        Map<String, Number> counterDeltas = new HashMap<>();
+        counterDeltas.put(CounterService.ordersByStatus(from), -moved);
+        counterDeltas.put(CounterService.ordersByStatus(to), moved);
+        if (to.countsAsRevenue() != from.countsAsRevenue()) {
+            counterDeltas.put(CounterService.ORDERS_REVENUE, to.countsAsRevenue() ? movedTotal[0] : movedTotal[0].negate());
+        }
+        counterService.add(counterDeltas);
+        outboxService.enqueueAll(ORDER_STATUS_CHANGED_TOPIC, events);
+        orderChangeService.record(movedIds);
+        orderSnapshotCache.evict(new ArrayList<>(events.keySet()));
+
+        meterRegistry.counter("bookstore.order.transitions", "from", from.name(), "to", to.name()).increment(moved);
+        log.debug("Advanced {} orders from {} to {}", moved, from, to);
+        return moved;
+    }
+
+    private OrderStatus requireNext(OrderStatus from) {
+        OrderStatus to = from.next();
+        if (to == null) {
+            throw new IllegalArgumentException("Orders in status " + from + " cannot advance");
+        }
+        return to;
+    }
+}
@@ -0,0 +1,112 @@
+package com.bookstore.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Snowflake-style order numbers: 41 bits of milliseconds since EPOCH_MS, 10 bits of node id,
+ * 12 bits of per-millisecond sequence, written as 13 Crockford base32 characters after "ORD-"
+ *
+ * Fixed width, so string order equals numeric order equals creation order and inserts land at
+ * the right edge of the orders.order_number index. Generation is a single CAS loop; when a
+ * millisecond's 4096 sequence values run out (or the clock steps back) the generator keeps
+ * counting in logical time instead of blocking.
+ *
+ * Numbers are only unique while no two running instances share a node id, so order-number.node-id
+ * must be set explicitly (e.g. from a StatefulSet ordinal); the application refuses to start without it.
+ */
+@Component
+@Slf4j
+public class OrderNumberGenerator {
+
+    public static final String PREFIX = "ORD-";
+
+    // 2025-01-01T00:00:00Z - 41 bits of milliseconds last ~69 years from here
+    private static final long EPOCH_MS = 1735689600000L;
+
+    private static final int NODE_BITS = 10;
+    private static final int SEQUENCE_BITS = 12;
+    private static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private static final String CROCKFORD_INDEX = "0123456789ABCDEFGHJKMNPQRSTVWXYZ";
+    private static final char[] CROCKFORD = CROCKFORD_INDEX.toCharArray();
+    private static final int ENCODED_LENGTH = 13; // ceil(63 / 5)
+    private static final Duration CLOCK_SLACK = Duration.ofMinutes(1);
+
+    private final long nodeId;
+
+    // (timestamp << SEQUENCE_BITS) | sequence of the last id handed out
+    private final AtomicLong lastState = new AtomicLong();
+
+    public OrderNumberGenerator(@Value("${order-number.node-id:-1}") long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("order-number.node-id (ORDER_NUMBER_NODE_ID) must be set to a value "
+                    + "between 0 and " + MAX_NODE_ID + " that no other running instance uses");
+        }
+        this.nodeId = nodeId;
+        log.info("Order numbers generated with node id {}", nodeId);
+    }
+
+    public String next() {
+        return PREFIX + encode(nextId());
+    }
+
+    /**
+     * Earliest possible created_at of the order with this number, for partition pruning
+     * Orders are inserted after their number is generated (immediately, or later when queued);
+     * a minute of slack covers clock differences between nodes. Empty for legacy numbers.
+     */
+    public static Optional<LocalDateTime> createdNotBefore(String orderNumber) {
+        if (orderNumber == null || orderNumber.length() != PREFIX.length() + ENCODED_LENGTH
+                || !orderNumber.startsWith(PREFIX)) {
+            return Optional.empty();
+        }
+
+        long id = 0;
+        for (int i = PREFIX.length(); i < orderNumber.length(); i++) {
+            int digit = CROCKFORD_INDEX.indexOf(orderNumber.charAt(i));
+            if (digit < 0) {
+                return Optional.empty();
+            }
+            id = (id << 5) | digit;
+        }
+
+        long epochMs = (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH_MS;
+        return Optional.of(LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault())
+                .minus(CLOCK_SLACK));
+    }
+
+    long nextId() {
+        long now = System.currentTimeMillis() - EPOCH_MS;
+        long state = lastState.updateAndGet(last -> {
+            long lastTimestamp = last >>> SEQUENCE_BITS;
+            if (now > lastTimestamp) {
+                return now << SEQUENCE_BITS;
+            }
+            // Same millisecond or clock went back: next sequence, rolling into the next logical millisecond
+            return last + 1;
+        });
+
+        long timestamp = state >>> SEQUENCE_BITS;
+        long sequence = state & SEQUENCE_MASK;
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    private static String encode(long id) {
+        char[] chars = new char[ENCODED_LENGTH];
+        for (int i = ENCODED_LENGTH - 1; i >= 0; i--) {
+            chars[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+}
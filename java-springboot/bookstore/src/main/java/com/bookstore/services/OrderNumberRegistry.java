@@ -0,0 +1,67 @@
+package com.bookstore.services;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Global uniqueness guard for order numbers
+ *
+ * Once OrderPartitionJob has converted orders, the table can only enforce uniqueness on
+ * (order_number, created_at), so two orders with the same number but different created_at
+ * would both be accepted. order_numbers is a plain table keyed on the number alone; every
+ * order insert registers its number here in the same transaction, and a duplicate fails that
+ * transaction with a DuplicateKeyException instead of going unnoticed.
+ */
+@Service
+@Slf4j
+public class OrderNumberRegistry {
+
+    private static final String CREATE_TABLE_SQL = """
+            CREATE TABLE order_numbers (
+                order_number varchar(255) PRIMARY KEY
+            )
+            """;
+
+    private static final String BACKFILL_SQL =
+            "INSERT INTO order_numbers (order_number) SELECT order_number FROM orders ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public OrderNumberRegistry(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    @PostConstruct
+    public void initialize() {
+        transactionTemplate.executeWithoutResult(status -> {
+            // One instance creates and backfills; the others wait here and then find the table
+            jdbcTemplate.execute("SELECT pg_advisory_xact_lock(hashtext('order-numbers'))");
+            Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass('order_numbers') IS NOT NULL", Boolean.class);
+            if (Boolean.TRUE.equals(exists)) {
+                return;
+            }
+            jdbcTemplate.execute(CREATE_TABLE_SQL);
+            // Numbers of orders placed before the guard existed
+            Boolean hasOrders = jdbcTemplate.queryForObject("SELECT to_regclass('orders') IS NOT NULL", Boolean.class);
+            if (Boolean.TRUE.equals(hasOrders)) {
+                int backfilled = jdbcTemplate.update(BACKFILL_SQL);
+                log.info("Registered {} existing order numbers", backfilled);
+            }
+        });
+    }
+
+    /**
+     * Registers a new order's number as part of the caller's transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void register(String orderNumber) {
+        jdbcTemplate.update("INSERT INTO order_numbers (order_number) VALUES (?)", orderNumber);
+    }
+}
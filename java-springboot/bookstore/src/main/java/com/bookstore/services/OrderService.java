@@ -1,18 +1,40 @@
 package com.bookstore.services;
 
-import com.bookstore.domain.book.Book;
+import com.bookstore.domain.book.StockChangeReason;
 import com.bookstore.domain.order.Order;
+import com.bookstore.domain.order.OrderItem;
 import com.bookstore.domain.order.OrderStatus;
+import com.bookstore.dto.BulkCancelResponse;
+import com.bookstore.dto.OrderHistoryResponse;
 import com.bookstore.dto.OrderResponse;
-import com.bookstore.repository.BookRepository;
+import com.bookstore.dto.OrderSummaryResponse;
 import com.bookstore.repository.OrderRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 @Service
@@ -21,65 +43,338 @@ import java.util.stream.Collectors;
 public class OrderService {
 
     private final OrderRepository orderRepository;
-    private final BookRepository bookRepository;
+    private final RetryExecutor retryExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final InventoryService inventoryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final OrderSnapshotCache orderSnapshotCache;
+    private final CounterService counterService;
+    private final StockLedgerService stockLedgerService;
+    private final OrderChangeService orderChangeService;
 
-    @Transactional(readOnly = true)
+    // Locks the chunk's cancellable orders in id order, then flips them in one statement
+    private static final String CANCEL_CHUNK_SQL = """
+            WITH target AS (
+                SELECT id, status FROM orders
+                WHERE order_number = ANY(?) AND status IN ('PENDING', 'CONFIRMED', 'PROCESSING')
+                  AND created_at >= ?
+                ORDER BY id
+                FOR UPDATE
+            )
+            UPDATE orders o SET status = 'CANCELLED', updated_at = now()
+            FROM target t
+            WHERE o.id = t.id
+            RETURNING o.id, o.order_number, o.total_amount, t.status AS previous_status
+            """;
+
+    // Per order and book, so the stock ledger can attribute each restore to its order
+    private static final String CANCELLED_QUANTITIES_SQL =
+            "SELECT order_id, book_id, SUM(quantity) AS quantity FROM order_items WHERE order_id = ANY(?) " +
+            "GROUP BY order_id, book_id ORDER BY order_id";
+
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+
+    // Whole order detail in one flat query; the ownership filter means another user's order yields no rows
+    private static final String USER_ORDER_DETAIL_SQL = """
+            SELECT o.id, o.order_number, o.status, o.total_amount, o.created_at,
+                   oi.book_id, b.title, oi.quantity, oi.unit_price, oi.subtotal
+            FROM orders o
+            LEFT JOIN order_items oi ON oi.order_id = o.id AND oi.created_at >= ?
+            LEFT JOIN books b ON b.id = oi.book_id
+            WHERE o.order_number = ? AND o.user_id = ? AND o.created_at >= ?
+            ORDER BY oi.id
+            """;
+
+    // Lower created_at bound for order numbers that don't encode their creation time
+    private static final LocalDateTime PARTITION_FLOOR = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Value("${order.cancel.batch-size:500}")
+    private int cancelBatchSize;
+
+    /**
+     * Served from OrderSnapshotCache; only a miss runs the JOIN FETCH (and refills the cache)
+     */
     public OrderResponse getOrderByOrderNumber(String orderNumber) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
+        Optional<OrderSnapshotCache.Snapshot> cached = orderSnapshotCache.get(orderNumber);
+        if (cached.isPresent()) {
+            return cached.get().order();
+        }
+
+        Order order = findOrder(orderNumber)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found"));
 
-        return buildOrderResponse(order);
+        OrderResponse response = buildOrderResponse(order);
+        orderSnapshotCache.fill(order.getUser().getId(), response);
+        return response;
     }
 
+    /**
+     * Order detail for its owner; empty for unknown orders and orders of other users alike
+     * Cache hits are checked against the stored owner; misses build the response from
+     * USER_ORDER_DETAIL_SQL instead of hydrating the entity graph
+     */
+    public Optional<OrderResponse> getUserOrder(Long userId, String orderNumber) {
+        Optional<OrderSnapshotCache.Snapshot> cached = orderSnapshotCache.get(orderNumber);
+        if (cached.isPresent()) {
+            return cached.filter(snapshot -> userId.equals(snapshot.userId()))
+                    .map(OrderSnapshotCache.Snapshot::order);
+        }
+
+        Timestamp createdSince = Timestamp.valueOf(createdNotBefore(List.of(orderNumber)));
+        List<OrderResponse.OrderItemResponse> items = new ArrayList<>();
+        OrderResponse[] order = new OrderResponse[1];
+        jdbcTemplate.query(USER_ORDER_DETAIL_SQL, rs -> {
+            if (order[0] == null) {
+                order[0] = OrderResponse.builder()
+                        .orderId(rs.getLong("id"))
+                        .orderNumber(rs.getString("order_number"))
+                        .status(OrderResponse.OrderStatus.valueOf(rs.getString("status")))
+                        .totalAmount(rs.getBigDecimal("total_amount"))
+                        .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                        .items(items)
+                        .build();
+            }
+            long bookId = rs.getLong("book_id");
+            if (!rs.wasNull()) {
+                items.add(OrderResponse.OrderItemResponse.builder()
+                        .bookId(bookId)
+                        .bookTitle(rs.getString("title"))
+                        .quantity(rs.getInt("quantity"))
+                        .unitPrice(rs.getBigDecimal("unit_price"))
+                        .subtotal(rs.getBigDecimal("subtotal"))
+                        .build());
+            }
+        }, createdSince, orderNumber, userId, createdSince);
+
+        if (order[0] == null) {
+            return Optional.empty();
+        }
+        orderSnapshotCache.fill(userId, order[0]);
+        return Optional.of(order[0]);
+    }
+
+    /**
+     * One page of the user's orders, newest first, without items
+     * Keyset paginated on (createdAt, id): each page is an index range scan on
+     * idx_order_user_created_at no matter how deep the client scrolls
+     */
     @Transactional(readOnly = true)
-    public List<OrderResponse> getUserOrders(Long userId) {
-        List<Order> orders = orderRepository.findByUserIdOrderByCreatedAtDesc(userId);
-        return orders.stream()
-                .map(this::buildOrderResponse)
+    public OrderHistoryResponse getUserOrders(Long userId, String cursor, int limit) {
+        int pageSize = Math.max(1, Math.min(limit, MAX_HISTORY_PAGE_SIZE));
+        // One extra row tells whether another page exists
+        Pageable page = PageRequest.of(0, pageSize + 1);
+
+        List<OrderRepository.OrderSummaryView> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = orderRepository.findSummariesByUserId(userId, page);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            rows = orderRepository.findSummariesByUserIdAfter(userId, after.createdAt(), after.id(), page);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<OrderSummaryResponse> orders = rows.stream()
+                .limit(pageSize)
+                .map(row -> OrderSummaryResponse.builder()
+                        .orderId(row.getId())
+                        .orderNumber(row.getOrderNumber())
+                        .status(OrderResponse.OrderStatus.valueOf(row.getStatus().name()))
+                        .totalAmount(row.getTotalAmount())
+                        .itemCount(row.getItemCount())
+                        .createdAt(row.getCreatedAt())
+                        .build())
                 .collect(Collectors.toList());
+
+        String nextCursor = null;
+        if (hasMore) {
+            OrderSummaryResponse last = orders.get(orders.size() - 1);
+            nextCursor = new HistoryCursor(last.getCreatedAt(), last.getOrderId()).encode();
+        }
+
+        return OrderHistoryResponse.builder()
+                .orders(orders)
+                .nextCursor(nextCursor)
+                .build();
+    }
+
+    // Opaque to clients: base64url of "createdAt|id" of the last row returned
+    private record HistoryCursor(LocalDateTime createdAt, Long id) {
+
+        String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+        }
+
+        static HistoryCursor decode(String cursor) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                return new HistoryCursor(LocalDateTime.parse(parts[0]), Long.valueOf(parts[1]));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
     }
 
-    @Transactional
     public OrderResponse cancelOrder(String orderNumber) {
-        Order order = orderRepository.findByOrderNumber(orderNumber)
+        return retryExecutor.execute("order.cancel",
+                () -> transactionTemplate.execute(status -> applyCancel(orderNumber)));
+    }
+
+    private OrderResponse applyCancel(String orderNumber) {
+        // Held until commit: a concurrent cancel or fulfillment step waits here (or, in the
+        // fulfillment job, skips the row) and the status read below is the latest committed one
+        orderRepository.lockByOrderNumber(orderNumber, createdNotBefore(List.of(orderNumber)))
+                .orElseThrow(() -> new IllegalArgumentException("Order not found"));
+        Order order = findOrder(orderNumber)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found"));
 
         if (order.getStatus() == OrderStatus.CANCELLED) {
             throw new IllegalStateException("Order is already cancelled");
         }
 
-        if (order.getStatus() == OrderStatus.DELIVERED || order.getStatus() == OrderStatus.SHIPPED) {
+        if (!order.getStatus().canTransitionTo(OrderStatus.CANCELLED)) {
             throw new IllegalStateException("Cannot cancel order that is already shipped or delivered");
         }
 
+        Map<String, Number> counterDeltas = new HashMap<>();
+        counterDeltas.put(CounterService.ordersByStatus(order.getStatus()), -1);
+        counterDeltas.put(CounterService.ordersByStatus(OrderStatus.CANCELLED), 1);
+        if (order.getStatus().countsAsRevenue()) {
+            counterDeltas.put(CounterService.ORDERS_REVENUE, order.getTotalAmount().negate());
+        }
         order.setStatus(OrderStatus.CANCELLED);
 
-        // Collect book IDs and bulk fetch (optimized)
-        List<Long> bookIds = order.getItems().stream()
-                .map(item -> item.getBook().getId())
-                .collect(Collectors.toList());
+        // Same path as bulk cancel: sharded books get their units back on a slot, not on books.stock
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getBook().getId(), item.getQuantity(), Integer::sum);
+        }
+        Map<Long, Integer> stockAfter = inventoryService.restoreStock(quantities);
+        counterService.add(counterDeltas);
+        stockLedgerService.append(StockChangeReason.CANCELLATION, quantities.entrySet().stream()
+                .map(entry -> new StockLedgerService.Movement(entry.getKey(), entry.getValue(),
+                        stockAfter.get(entry.getKey()), orderNumber))
+                .toList());
+
+        Order savedOrder = orderRepository.save(order);
+        orderChangeService.record(List.of(savedOrder.getId()));
+        log.info("Order cancelled: {}", orderNumber);
+
+        OrderResponse response = buildOrderResponse(savedOrder);
+        orderSnapshotCache.put(savedOrder.getUser().getId(), response);
+        return response;
+    }
+
+    /**
+     * Cancels many orders (e.g. after payment failures) and returns their stock
+     * Works in chunks of order.cancel.batch-size, each its own retried transaction: one UPDATE
+     * for the statuses, one aggregated SELECT over order_items, and one batched per-book stock
+     * restore in id order (InventoryService.restoreStock). Orders that are unknown or no longer
+     * cancellable are reported as skipped.
+     */
+    public BulkCancelResponse cancelOrders(List<String> orderNumbers) {
+        long start = System.nanoTime();
+        List<String> distinct = orderNumbers.stream().distinct().toList();
+        Set<String> cancelled = new HashSet<>();
+        int chunks = 0;
+
+        for (int from = 0; from < distinct.size(); from += cancelBatchSize) {
+            List<String> chunk = distinct.subList(from, Math.min(from + cancelBatchSize, distinct.size()));
+            cancelled.addAll(retryExecutor.execute("order.cancel.bulk",
+                    () -> transactionTemplate.execute(status -> cancelChunk(chunk))));
+            chunks++;
+        }
 
-        // Bulk fetch books with pessimistic locking
-        List<Book> books = bookRepository.findByIdsWithLock(bookIds);
-        Map<Long, Book> booksMap = books.stream()
-                .collect(Collectors.toMap(Book::getId, book -> book));
+        long elapsedNanos = System.nanoTime() - start;
+        meterRegistry.timer("bookstore.order.cancel.bulk").record(elapsedNanos, TimeUnit.NANOSECONDS);
+        meterRegistry.counter("bookstore.order.cancel.bulk.orders").increment(cancelled.size());
 
-        // Restore stock
-        order.getItems().forEach(item -> {
-            Book book = booksMap.get(item.getBook().getId());
-            if (book == null) {
-                throw new IllegalArgumentException("Book not found: " + item.getBook().getId());
+        double seconds = elapsedNanos / 1e9;
+        double ordersPerSecond = seconds > 0 ? cancelled.size() / seconds : 0;
+        log.info("Bulk cancelled {} of {} orders in {} chunks ({} orders/s)",
+                cancelled.size(), distinct.size(), chunks, String.format("%.1f", ordersPerSecond));
+
+        return BulkCancelResponse.builder()
+                .requested(distinct.size())
+                .cancelled(cancelled.size())
+                .skipped(distinct.stream().filter(number -> !cancelled.contains(number)).toList())
+                .chunks(chunks)
+                .durationMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos))
+                .ordersPerSecond(ordersPerSecond)
+                .build();
+    }
+
+    private Set<String> cancelChunk(List<String> orderNumbers) {
+        List<Long> orderIds = new ArrayList<>();
+        Map<Long, String> orderNumbersById = new HashMap<>();
+        Set<String> cancelled = new HashSet<>();
+        Map<String, Integer> statusDeltas = new HashMap<>();
+        BigDecimal[] revenueDelta = {BigDecimal.ZERO};
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(CANCEL_CHUNK_SQL);
+            ps.setArray(1, con.createArrayOf("text", orderNumbers.toArray()));
+            ps.setTimestamp(2, Timestamp.valueOf(createdNotBefore(orderNumbers)));
+            return ps;
+        }, rs -> {
+            orderIds.add(rs.getLong("id"));
+            orderNumbersById.put(rs.getLong("id"), rs.getString("order_number"));
+            cancelled.add(rs.getString("order_number"));
+            OrderStatus previous = OrderStatus.valueOf(rs.getString("previous_status"));
+            statusDeltas.merge(CounterService.ordersByStatus(previous), -1, Integer::sum);
+            if (previous.countsAsRevenue()) {
+                revenueDelta[0] = revenueDelta[0].subtract(rs.getBigDecimal("total_amount"));
             }
-            book.setStock(book.getStock() + item.getQuantity());
         });
 
-        // Bulk save all books
-        bookRepository.saveAll(books);
+        if (orderIds.isEmpty()) {
+            return cancelled;
+        }
+        Map<String, Number> counterDeltas = new HashMap<>(statusDeltas);
+        counterDeltas.put(CounterService.ordersByStatus(OrderStatus.CANCELLED), orderIds.size());
+        counterDeltas.put(CounterService.ORDERS_REVENUE, revenueDelta[0]);
+        counterService.add(counterDeltas);
+        orderChangeService.record(orderIds);
+        orderSnapshotCache.evict(cancelled);
 
-        Order savedOrder = orderRepository.save(order);
-        log.info("Order cancelled: {}", orderNumber);
+        Map<Long, Integer> quantities = new HashMap<>();
+        Map<String, Map<Long, Integer>> quantitiesByOrder = new LinkedHashMap<>();
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(CANCELLED_QUANTITIES_SQL);
+            ps.setArray(1, con.createArrayOf("bigint", orderIds.toArray()));
+            return ps;
+        }, rs -> {
+            long bookId = rs.getLong("book_id");
+            int quantity = rs.getInt("quantity");
+            quantities.merge(bookId, quantity, Integer::sum);
+            quantitiesByOrder.computeIfAbsent(orderNumbersById.get(rs.getLong("order_id")), number -> new HashMap<>())
+                    .put(bookId, quantity);
+        });
 
-        return buildOrderResponse(savedOrder);
+        Map<Long, Integer> stockAfter = inventoryService.restoreStock(quantities);
+        stockLedgerService.append(StockChangeReason.CANCELLATION, StockLedgerService.inSequence(quantitiesByOrder, stockAfter));
+        return cancelled;
+    }
+
+    // Prunes partitions older than the order number's timestamp when it has one
+    private Optional<Order> findOrder(String orderNumber) {
+        return OrderNumberGenerator.createdNotBefore(orderNumber)
+                .map(since -> orderRepository.findByOrderNumberCreatedSince(orderNumber, since))
+                .orElseGet(() -> orderRepository.findByOrderNumber(orderNumber));
+    }
+
+    private static LocalDateTime createdNotBefore(List<String> orderNumbers) {
+        LocalDateTime earliest = null;
+        for (String orderNumber : orderNumbers) {
+            Optional<LocalDateTime> bound = OrderNumberGenerator.createdNotBefore(orderNumber);
+            if (bound.isEmpty()) {
+                return PARTITION_FLOOR;
+            }
+            if (earliest == null || bound.get().isBefore(earliest)) {
+                earliest = bound.get();
+            }
+        }
+        return earliest != null ? earliest : PARTITION_FLOOR;
     }
 
     private OrderResponse buildOrderResponse(Order order) {
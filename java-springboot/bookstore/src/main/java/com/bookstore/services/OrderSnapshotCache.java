@@ -0,0 +1,124 @@
+package com.bookstore.services;
+
+import com.bookstore.dto.OrderResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Redis cache of serialized OrderResponse snapshots keyed by order number
+ * Written at checkout and on every status change, so order detail polling never reaches
+ * the database. The owner's id is stored alongside for ownership checks.
+ * Snapshots loaded by readers (fill) never overwrite an entry and expire after fill-ttl: a
+ * read can lose the race with a status change that commits and evicts right after it, and
+ * the short TTL bounds how long that stale status can be served.
+ * Best-effort - Redis failures fall back to the database
+ */
+@Service
+@Slf4j
+public class OrderSnapshotCache {
+
+    private static final String ORDER_KEY_PREFIX = "order:snapshot:";
+
+    public record Snapshot(Long userId, OrderResponse order) {
+    }
+
+    private final StringRedisTemplate redisTemplate;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration fillTtl;
+
+    public OrderSnapshotCache(
+            StringRedisTemplate redisTemplate,
+            ObjectMapper objectMapper,
+            @Value("${order.snapshot.ttl:P7D}") Duration ttl,
+            @Value("${order.snapshot.fill-ttl:PT30S}") Duration fillTtl
+    ) {
+        this.redisTemplate = redisTemplate;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.fillTtl = fillTtl;
+    }
+
+    public Optional<Snapshot> get(String orderNumber) {
+        try {
+            String json = redisTemplate.opsForValue().get(key(orderNumber));
+            if (json == null) {
+                return Optional.empty();
+            }
+            return Optional.of(objectMapper.readValue(json, Snapshot.class));
+        } catch (Exception e) {
+            log.warn("Failed to read cached order {}", orderNumber, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores the snapshot once the surrounding transaction commits
+     */
+    public void put(Long userId, OrderResponse order) {
+        afterCommit(() -> {
+            try {
+                String json = objectMapper.writeValueAsString(new Snapshot(userId, order));
+                redisTemplate.opsForValue().set(key(order.getOrderNumber()), json, ttl);
+            } catch (Exception e) {
+                log.warn("Failed to cache order {}", order.getOrderNumber(), e);
+            }
+        });
+    }
+
+    /**
+     * Caches a snapshot a reader loaded after a miss, unless a writer got there first
+     */
+    public void fill(Long userId, OrderResponse order) {
+        try {
+            String json = objectMapper.writeValueAsString(new Snapshot(userId, order));
+            redisTemplate.opsForValue().setIfAbsent(key(order.getOrderNumber()), json, fillTtl);
+        } catch (Exception e) {
+            log.warn("Failed to cache order {}", order.getOrderNumber(), e);
+        }
+    }
+
+    /**
+     * For bulk status changes; the next read reloads the snapshot
+     */
+    public void evict(Collection<String> orderNumbers) {
+        if (orderNumbers.isEmpty()) {
+            return;
+        }
+        List<String> keys = orderNumbers.stream().map(this::key).toList();
+        afterCommit(() -> {
+            try {
+                redisTemplate.delete(keys);
+            } catch (Exception e) {
+                log.warn("Failed to evict {} cached orders", keys.size(), e);
+            }
+        });
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    private String key(String orderNumber) {
+        return ORDER_KEY_PREFIX + orderNumber;
+    }
+}
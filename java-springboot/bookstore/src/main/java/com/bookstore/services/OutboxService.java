@@ -0,0 +1,61 @@
+package com.bookstore.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes Kafka events to outbox_events inside the caller's transaction
+ * The event exists exactly when the change commits; OutboxRelayJob publishes it afterwards,
+ * so request threads never wait on the broker
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private static final String INSERT_EVENT_SQL =
+            "INSERT INTO outbox_events (topic, event_key, payload, created_at) VALUES (?, ?, ?, now())";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Events with the same key are published in the order they were written
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueue(String topic, String key, Object payload) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize " + topic + " event", e);
+        }
+        jdbcTemplate.update(INSERT_EVENT_SQL, topic, key, json);
+    }
+
+    /**
+     * Batched enqueue for bulk operations (event key -> payload), in map iteration order
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enqueueAll(String topic, Map<String, ?> payloadsByKey) {
+        List<Object[]> rows = new ArrayList<>(payloadsByKey.size());
+        for (Map.Entry<String, ?> entry : payloadsByKey.entrySet()) {
+            try {
+                rows.add(new Object[]{topic, entry.getKey(), objectMapper.writeValueAsString(entry.getValue())});
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize " + topic + " event", e);
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_EVENT_SQL, rows);
+        }
+    }
+}
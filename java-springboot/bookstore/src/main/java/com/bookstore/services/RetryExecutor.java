@@ -0,0 +1,96 @@
+package com.bookstore.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Retries contention failures (optimistic version conflicts, lock timeouts, deadlocks)
+ * with full-jitter exponential backoff
+ *
+ * Callers pass the whole transaction as the action (TransactionTemplate inside the supplier),
+ * so every attempt gets a fresh persistence context and no connection is held while sleeping.
+ * Never call this from inside a @Transactional method.
+ *
+ * Metrics: bookstore.retry.attempts{operation,cause} per retried failure,
+ * bookstore.retry.exhausted{operation,cause} when giving up.
+ */
+@Component
+@Slf4j
+public class RetryExecutor {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${retry.initial-backoff:PT0.02S}")
+    private Duration initialBackoff;
+
+    @Value("${retry.max-backoff:PT0.5S}")
+    private Duration maxBackoff;
+
+    @Value("${retry.max-elapsed:PT2S}")
+    private Duration maxElapsed;
+
+    public RetryExecutor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Runs action until it succeeds, fails with a non-contention exception, or the attempt/time
+     * budget is spent; in the last case the final ConcurrencyFailureException is rethrown
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        long deadline = System.nanoTime() + maxElapsed.toNanos();
+        int attempt = 0;
+
+        while (true) {
+            try {
+                return action.get();
+            } catch (ConcurrencyFailureException e) {
+                attempt++;
+                String cause = e.getClass().getSimpleName();
+                long backoffNanos = backoffNanos(attempt);
+
+                if (attempt >= maxAttempts || System.nanoTime() + backoffNanos > deadline) {
+                    meterRegistry.counter("bookstore.retry.exhausted", "operation", operation, "cause", cause).increment();
+                    log.warn("{} gave up after {} attempts: {}", operation, attempt, cause);
+                    throw e;
+                }
+
+                meterRegistry.counter("bookstore.retry.attempts", "operation", operation, "cause", cause).increment();
+                log.debug("{} hit {}, retry {}/{} in {} ms", operation, cause, attempt, maxAttempts - 1, backoffNanos / 1_000_000);
+                sleep(backoffNanos);
+            }
+        }
+    }
+
+    public void run(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    // Full jitter: uniform in [0, min(maxBackoff, initialBackoff * 2^(attempt-1))]
+    long backoffNanos(int attempt) {
+        long ceiling = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    private void sleep(long nanos) {
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during retry", ie);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.bookstore.services;
+
+import com.bookstore.dto.SalesPeriodResponse;
+import com.bookstore.dto.TopSellerResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Sales reports over the daily rollups maintained by SalesRollupJob
+ * Never touches orders / order_items, so cost depends on the number of days and titles
+ * in range, not on order volume. Date ranges are inclusive.
+ */
+@Service
+@RequiredArgsConstructor
+public class SalesReportService {
+
+    public enum Period {
+        DAY, WEEK, MONTH
+    }
+
+    public enum Ranking {
+        REVENUE, UNITS
+    }
+
+    private static final int MAX_TOP_SELLERS = 100;
+
+    // ORDER BY is spliced from the Ranking enum, never from user input
+    private static final String TOP_SELLERS_SQL = """
+            SELECT s.book_id, b.title, b.genre, s.units, s.revenue, s.orders
+            FROM (
+                SELECT book_id, SUM(units) AS units, SUM(revenue) AS revenue, SUM(orders) AS orders
+                FROM daily_book_sales
+                WHERE sale_date >= ? AND sale_date <= ?
+                GROUP BY book_id
+                ORDER BY %s DESC, book_id
+                LIMIT ?
+            ) s
+            JOIN books b ON b.id = s.book_id
+            ORDER BY s.%s DESC, s.book_id
+            """;
+
+    private static final String REVENUE_BY_PERIOD_SQL = """
+            SELECT CAST(date_trunc(?, CAST(sale_date AS timestamp)) AS date) AS period_start, SUM(units) AS units, SUM(revenue) AS revenue
+            FROM daily_genre_sales
+            WHERE sale_date >= ? AND sale_date <= ?
+            GROUP BY 1
+            ORDER BY 1
+            """;
+
+    private static final String REVENUE_BY_GENRE_SQL = """
+            SELECT genre, SUM(units) AS units, SUM(revenue) AS revenue
+            FROM daily_genre_sales
+            WHERE sale_date >= ? AND sale_date <= ?
+            GROUP BY genre
+            ORDER BY revenue DESC
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Transactional(readOnly = true)
+    public List<TopSellerResponse> getTopSellers(LocalDate from, LocalDate to, Ranking ranking, int limit) {
+        requireRange(from, to);
+        String column = ranking == Ranking.UNITS ? "units" : "revenue";
+        return jdbcTemplate.query(String.format(TOP_SELLERS_SQL, column, column),
+                (rs, rowNum) -> TopSellerResponse.builder()
+                        .bookId(rs.getLong("book_id"))
+                        .title(rs.getString("title"))
+                        .genre(rs.getString("genre"))
+                        .units(rs.getLong("units"))
+                        .revenue(rs.getBigDecimal("revenue"))
+                        .orders(rs.getLong("orders"))
+                        .build(),
+                Date.valueOf(from), Date.valueOf(to), Math.max(1, Math.min(limit, MAX_TOP_SELLERS)));
+    }
+
+    /**
+     * Weeks are ISO weeks (starting Monday); periods at the edges only cover the days in range
+     */
+    @Transactional(readOnly = true)
+    public List<SalesPeriodResponse> getRevenueByPeriod(LocalDate from, LocalDate to, Period period) {
+        requireRange(from, to);
+        return jdbcTemplate.query(REVENUE_BY_PERIOD_SQL,
+                (rs, rowNum) -> SalesPeriodResponse.builder()
+                        .periodStart(rs.getDate("period_start").toLocalDate())
+                        .units(rs.getLong("units"))
+                        .revenue(rs.getBigDecimal("revenue"))
+                        .build(),
+                period.name().toLowerCase(), Date.valueOf(from), Date.valueOf(to));
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesPeriodResponse> getRevenueByGenre(LocalDate from, LocalDate to) {
+        requireRange(from, to);
+        return jdbcTemplate.query(REVENUE_BY_GENRE_SQL,
+                (rs, rowNum) -> SalesPeriodResponse.builder()
+                        .genre(rs.getString("genre"))
+                        .units(rs.getLong("units"))
+                        .revenue(rs.getBigDecimal("revenue"))
+                        .build(),
+                Date.valueOf(from), Date.valueOf(to));
+    }
+
+    private static void requireRange(LocalDate from, LocalDate to) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+    }
+}
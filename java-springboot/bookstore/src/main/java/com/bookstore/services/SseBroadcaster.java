@@ -0,0 +1,97 @@
+package com.bookstore.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * SSE connections held by this instance, grouped by topic (e.g. one order's checkout status)
+ *
+ * Services publish to a topic and the broadcaster fans out to the emitters subscribed on this node;
+ * cross-node delivery stays with the services' Redis channels. A client that fails a send is
+ * completed and dropped, and a topic disappears with its last subscriber. Every emitter gets a
+ * comment line each sse.heartbeat-interval so proxies don't close idle streams and dead clients
+ * are noticed even on quiet topics.
+ */
+@Component
+@Slf4j
+public class SseBroadcaster {
+
+    private final Map<String, Set<SseEmitter>> topics = new ConcurrentHashMap<>();
+
+    /**
+     * Registers a new emitter on topic; it is removed again when it completes, times out or fails
+     */
+    public SseEmitter subscribe(String topic, Duration timeout) {
+        SseEmitter emitter = new SseEmitter(timeout.toMillis());
+        topics.computeIfAbsent(topic, key -> ConcurrentHashMap.newKeySet()).add(emitter);
+        Runnable remove = () -> remove(topic, emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(ex -> remove.run());
+        return emitter;
+    }
+
+    public boolean hasSubscribers(String topic) {
+        return topics.containsKey(topic);
+    }
+
+    /**
+     * Sends one event to every emitter on topic; data is serialized as JSON unless it is a String
+     */
+    public void send(String topic, String event, Object data) {
+        Set<SseEmitter> emitters = topics.get(topic);
+        if (emitters != null) {
+            emitters.forEach(emitter -> send(emitter, event, data));
+        }
+    }
+
+    /**
+     * Sends one event to a single emitter; false if the client is gone
+     */
+    public boolean send(SseEmitter emitter, String event, Object data) {
+        return deliver(emitter, SseEmitter.event().name(event).data(data));
+    }
+
+    /**
+     * Ends every stream on topic, e.g. once the thing it follows has finished
+     */
+    public void complete(String topic) {
+        Set<SseEmitter> emitters = topics.remove(topic);
+        if (emitters != null) {
+            emitters.forEach(SseEmitter::complete);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${sse.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        topics.values().forEach(emitters -> emitters.forEach(emitter ->
+                deliver(emitter, SseEmitter.event().comment("heartbeat"))));
+    }
+
+    private boolean deliver(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            // Client went away or emitter already completed
+            log.debug("Dropping SSE subscriber: {}", e.getMessage());
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void remove(String topic, SseEmitter emitter) {
+        topics.computeIfPresent(topic, (key, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+}
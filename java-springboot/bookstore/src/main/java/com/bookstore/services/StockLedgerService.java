@@ -0,0 +1,218 @@
+package com.bookstore.services;
+
+import com.bookstore.domain.book.StockChangeReason;
+import com.bookstore.dto.StockMovementResponse;
+import com.bookstore.dto.StockRollupResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Append-only stock ledger: one stock_ledger row per book per stock change
+ *
+ * Writers append inside the transaction that changes the stock, one JDBC batch per change,
+ * so the ledger holds exactly the committed movements. The table is range-partitioned by
+ * month on created_at (see StockLedgerPartitionJob); reads always take a time range so only
+ * the partitions covering it are scanned, except getMovementsAfter, which follows the ledger by
+ * transaction id. Appended movements also feed low-stock detection (see LowStockAlertService).
+ */
+@Service
+public class StockLedgerService {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO stock_ledger (book_id, reason, reference, delta, stock_after, created_at) VALUES (?, ?, ?, ?, ?, now())";
+
+    private static final String MOVEMENTS_SQL = """
+            SELECT l.id, l.book_id, b.title, l.reason, l.reference, l.delta, l.stock_after, l.created_at
+            FROM stock_ledger l
+            JOIN books b ON b.id = l.book_id
+            """;
+
+    // Scans idx_stock_ledger_tx_id in every partition; the range is only a few ticks wide
+    private static final String FOLLOW_SQL = """
+            SELECT l.tx_id::text AS tx_id, l.id, l.book_id, b.title, l.reason, l.reference, l.delta, l.stock_after, l.created_at
+            FROM stock_ledger l
+            JOIN books b ON b.id = l.book_id
+            WHERE (l.tx_id, l.id) > (CAST(? AS xid8), ?) AND l.tx_id < CAST(? AS xid8)
+            ORDER BY l.tx_id, l.id
+            LIMIT ?
+            """;
+
+    // Buckets are aligned to the epoch, so hourly and daily buckets start on the hour / at midnight UTC
+    private static final String ROLLUPS_SQL = """
+            SELECT to_timestamp(floor(extract(epoch FROM created_at) / ?) * ?) AT TIME ZONE 'UTC' AS bucket_start,
+                   count(*) AS movements,
+                   COALESCE(SUM(delta) FILTER (WHERE delta > 0), 0) AS units_in,
+                   COALESCE(-SUM(delta) FILTER (WHERE delta < 0), 0) AS units_out,
+                   SUM(delta) AS net_delta,
+                   (array_agg(stock_after ORDER BY created_at DESC, id DESC) FILTER (WHERE stock_after IS NOT NULL))[1] AS closing_stock
+            FROM stock_ledger
+            WHERE created_at >= ? AND created_at < ?
+            """;
+
+    private static final RowMapper<StockMovementResponse> MOVEMENT_MAPPER = (rs, rowNum) -> {
+        Integer stockAfter = (Integer) rs.getObject("stock_after");
+        int delta = rs.getInt("delta");
+        return StockMovementResponse.builder()
+                .id(rs.getLong("id"))
+                .bookId(rs.getLong("book_id"))
+                .bookTitle(rs.getString("title"))
+                .reason(StockChangeReason.fromCode(rs.getShort("reason")))
+                .reference(rs.getString("reference"))
+                .delta(delta)
+                .previousStock(stockAfter != null ? stockAfter - delta : null)
+                .stockAfter(stockAfter)
+                .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                .build();
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LowStockAlertService lowStockAlertService;
+    private final int maxBuckets;
+
+    public StockLedgerService(
+            JdbcTemplate jdbcTemplate,
+            LowStockAlertService lowStockAlertService,
+            @Value("${stock-ledger.rollup.max-buckets:2000}") int maxBuckets
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.lowStockAlertService = lowStockAlertService;
+        this.maxBuckets = maxBuckets;
+    }
+
+    /**
+     * A change to one book's stock; stockAfter is null when it isn't known without extra reads
+     */
+    public record Movement(Long bookId, int delta, Integer stockAfter, String reference) {
+    }
+
+    /**
+     * A stored movement with the id of the transaction that appended it
+     */
+    public record LedgerEntry(String txId, StockMovementResponse movement) {
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(StockChangeReason reason, List<Movement> movements) {
+        List<Movement> nonZero = movements.stream().filter(movement -> movement.delta() != 0).toList();
+        if (nonZero.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, nonZero, nonZero.size(), (ps, movement) -> {
+            ps.setLong(1, movement.bookId());
+            ps.setShort(2, reason.getCode());
+            ps.setString(3, movement.reference());
+            ps.setInt(4, movement.delta());
+            if (movement.stockAfter() != null) {
+                ps.setInt(5, movement.stockAfter());
+            } else {
+                ps.setNull(5, Types.INTEGER);
+            }
+        });
+        lowStockAlertService.detect(nonZero);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(StockChangeReason reason, Long bookId, int delta, Integer stockAfter, String reference) {
+        append(reason, List.of(new Movement(bookId, delta, stockAfter, reference)));
+    }
+
+    /**
+     * Movements for several references applied as one combined change, e.g. a checkout batch
+     * deltasByReference is reference -> (bookId -> delta) in the order the changes are recorded;
+     * finalStock is the stock once all of them are applied, from which each entry's stockAfter
+     * is replayed. Books missing from finalStock get no stockAfter.
+     */
+    public static List<Movement> inSequence(Map<String, Map<Long, Integer>> deltasByReference, Map<Long, Integer> finalStock) {
+        Map<Long, Integer> running = new HashMap<>(finalStock);
+        deltasByReference.values().forEach(deltas -> deltas.forEach((bookId, delta) ->
+                running.computeIfPresent(bookId, (id, stock) -> stock - delta)));
+
+        List<Movement> movements = new ArrayList<>();
+        deltasByReference.forEach((reference, deltas) -> deltas.forEach((bookId, delta) -> {
+            Integer stockAfter = running.computeIfPresent(bookId, (id, stock) -> stock + delta);
+            movements.add(new Movement(bookId, delta, stockAfter, reference));
+        }));
+        return movements;
+    }
+
+    /**
+     * Newest first within [from, to), optionally for one book
+     */
+    public List<StockMovementResponse> getMovements(Long bookId, LocalDateTime from, LocalDateTime to, int limit) {
+        requireRange(from, to);
+        List<Object> args = new ArrayList<>(List.of(Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String sql = MOVEMENTS_SQL + " WHERE l.created_at >= ? AND l.created_at < ?";
+        if (bookId != null) {
+            sql += " AND l.book_id = ?";
+            args.add(bookId);
+        }
+        sql += " ORDER BY l.created_at DESC, l.id DESC LIMIT ?";
+        args.add(limit);
+
+        return jdbcTemplate.query(sql, MOVEMENT_MAPPER, args.toArray());
+    }
+
+    /**
+     * Entries in commit order: strictly after the (afterTxId, afterId) position and written by
+     * transactions below horizon, a snapshot xmin (see OrderChangeService) so none of them can still
+     * commit. Lets a reader follow the ledger: pass the last entry returned as the next position,
+     * or (horizon, 0) once fewer than limit came back. Transaction ids are xid8 values as text.
+     */
+    public List<LedgerEntry> getMovementsAfter(String afterTxId, long afterId, String horizon, int limit) {
+        return jdbcTemplate.query(FOLLOW_SQL,
+                (rs, rowNum) -> new LedgerEntry(rs.getString("tx_id"), MOVEMENT_MAPPER.mapRow(rs, rowNum)),
+                afterTxId, afterId, horizon, limit);
+    }
+
+    /**
+     * Movements in [from, to) downsampled into buckets of the given width, optionally for one book
+     * Empty buckets are omitted
+     */
+    public List<StockRollupResponse> getRollups(Long bookId, LocalDateTime from, LocalDateTime to, Duration bucket) {
+        requireRange(from, to);
+        long bucketSeconds = bucket.toSeconds();
+        if (bucketSeconds <= 0) {
+            throw new IllegalArgumentException("Bucket must be at least one second");
+        }
+        if (Duration.between(from, to).toSeconds() / bucketSeconds > maxBuckets) {
+            throw new IllegalArgumentException("Range spans more than " + maxBuckets + " buckets; use a wider bucket");
+        }
+
+        List<Object> args = new ArrayList<>(List.of(bucketSeconds, bucketSeconds, Timestamp.valueOf(from), Timestamp.valueOf(to)));
+        String sql = ROLLUPS_SQL;
+        if (bookId != null) {
+            sql += " AND book_id = ?";
+            args.add(bookId);
+        }
+        sql += " GROUP BY 1 ORDER BY 1";
+
+        return jdbcTemplate.query(sql, (rs, rowNum) -> StockRollupResponse.builder()
+                .bucketStart(rs.getTimestamp("bucket_start").toLocalDateTime())
+                .movements(rs.getLong("movements"))
+                .unitsIn(rs.getLong("units_in"))
+                .unitsOut(rs.getLong("units_out"))
+                .netDelta(rs.getLong("net_delta"))
+                // Across books the last entry's stock says nothing about the total
+                .closingStock(bookId != null ? (Integer) rs.getObject("closing_stock") : null)
+                .build(), args.toArray());
+    }
+
+    private static void requireRange(LocalDateTime from, LocalDateTime to) {
+        if (from == null || to == null || !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.bookstore.services;
+
+import com.bookstore.repository.UserRepository;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * In-process set of user ids known to exist
+ * Write paths that only need users.id as a foreign key check here and attach
+ * userRepository.getReferenceById instead of loading the row. Users are never deleted,
+ * so a positive entry can't go stale; misses cost one index-only existsById.
+ */
+@Component
+public class UserExistenceCache {
+
+    private final UserRepository userRepository;
+    private final Cache<Long, Boolean> knownUsers = CacheBuilder.newBuilder()
+            .maximumSize(100_000)
+            .expireAfterAccess(Duration.ofHours(6))
+            .build();
+
+    public UserExistenceCache(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    public void requireExists(Long userId) {
+        if (knownUsers.getIfPresent(userId) != null) {
+            return;
+        }
+        if (!userRepository.existsById(userId)) {
+            throw new IllegalArgumentException("User not found");
+        }
+        knownUsers.put(userId, Boolean.TRUE);
+    }
+
+    /**
+     * For callers that just loaded the user anyway (login)
+     */
+    public void markExists(Long userId) {
+        knownUsers.put(userId, Boolean.TRUE);
+    }
+}
@@ -3,7 +3,7 @@ package com.bookstore;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "order-number.node-id=0")
 class BookstoreApplicationTests {
 
 	@Test
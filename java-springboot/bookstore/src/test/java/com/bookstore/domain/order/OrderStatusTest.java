@@ -0,0 +1,53 @@
+package com.bookstore.domain.order;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatusTest {
+
+    @Test
+    void nextFollowsTheFulfillmentSequence() {
+        assertThat(OrderStatus.PENDING.next()).isEqualTo(OrderStatus.CONFIRMED);
+        assertThat(OrderStatus.CONFIRMED.next()).isEqualTo(OrderStatus.PROCESSING);
+        assertThat(OrderStatus.PROCESSING.next()).isEqualTo(OrderStatus.SHIPPED);
+        assertThat(OrderStatus.SHIPPED.next()).isEqualTo(OrderStatus.DELIVERED);
+        assertThat(OrderStatus.DELIVERED.next()).isNull();
+        assertThat(OrderStatus.CANCELLED.next()).isNull();
+    }
+
+    @Test
+    void onlyTheNextStepOrACancellationIsAllowed() {
+        assertThat(allowedFrom(OrderStatus.PENDING)).containsExactlyInAnyOrder(OrderStatus.CONFIRMED, OrderStatus.CANCELLED);
+        assertThat(allowedFrom(OrderStatus.CONFIRMED)).containsExactlyInAnyOrder(OrderStatus.PROCESSING, OrderStatus.CANCELLED);
+        assertThat(allowedFrom(OrderStatus.PROCESSING)).containsExactlyInAnyOrder(OrderStatus.SHIPPED, OrderStatus.CANCELLED);
+        assertThat(allowedFrom(OrderStatus.SHIPPED)).containsExactly(OrderStatus.DELIVERED);
+        assertThat(allowedFrom(OrderStatus.DELIVERED)).isEmpty();
+        assertThat(allowedFrom(OrderStatus.CANCELLED)).isEmpty();
+    }
+
+    @Test
+    void ordersCanBeCancelledUntilTheyShip() {
+        assertThat(OrderStatus.PENDING.canTransitionTo(OrderStatus.CANCELLED)).isTrue();
+        assertThat(OrderStatus.CONFIRMED.canTransitionTo(OrderStatus.CANCELLED)).isTrue();
+        assertThat(OrderStatus.PROCESSING.canTransitionTo(OrderStatus.CANCELLED)).isTrue();
+        assertThat(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.CANCELLED)).isFalse();
+        assertThat(OrderStatus.DELIVERED.canTransitionTo(OrderStatus.CANCELLED)).isFalse();
+        assertThat(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.CANCELLED)).isFalse();
+    }
+
+    @Test
+    void statusesNeverSkipStepsOrGoBack() {
+        assertThat(OrderStatus.PENDING.canTransitionTo(OrderStatus.SHIPPED)).isFalse();
+        assertThat(OrderStatus.SHIPPED.canTransitionTo(OrderStatus.PROCESSING)).isFalse();
+        assertThat(OrderStatus.PENDING.canTransitionTo(OrderStatus.PENDING)).isFalse();
+        assertThat(OrderStatus.CANCELLED.canTransitionTo(OrderStatus.PENDING)).isFalse();
+    }
+
+    private static List<OrderStatus> allowedFrom(OrderStatus from) {
+        return Arrays.stream(OrderStatus.values()).filter(from::canTransitionTo).toList();
+    }
+}
@@ -0,0 +1,126 @@
+package com.bookstore.repository;
+
+import com.bookstore.domain.order.Order;
+import com.bookstore.domain.order.OrderStatus;
+import com.bookstore.domain.user.Role;
+import com.bookstore.domain.user.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * OrderService.applyCancel takes lockByOrderNumber before loading the order, so a cancellation
+ * racing another writer of the same order reads the status that writer committed
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.default_schema=public")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Testcontainers
+class OrderCancellationLockTest {
+
+    private static final String ORDER_NUMBER = "ORD-0000000000001";
+    private static final LocalDateTime ANY_TIME = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @DynamicPropertySource
+    static void datasource(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", POSTGRES::getJdbcUrl);
+        registry.add("spring.datasource.username", POSTGRES::getUsername);
+        registry.add("spring.datasource.password", POSTGRES::getPassword);
+    }
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        User user = userRepository.save(User.builder()
+                .name("Reader")
+                .email("reader@example.com")
+                .password("hash")
+                .role(Role.CUSTOMER)
+                .build());
+        orderRepository.save(Order.builder()
+                .orderNumber(ORDER_NUMBER)
+                .user(user)
+                .status(OrderStatus.PROCESSING)
+                .totalAmount(BigDecimal.TEN)
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void cancellationWaitsForAConcurrentWriterAndSeesItsStatus() throws Exception {
+        CompletableFuture<OrderStatus> cancellation = new CompletableFuture<>();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            // Another writer (e.g. a cancellation or fulfillment step) holds the row
+            orderRepository.lockByOrderNumber(ORDER_NUMBER, ANY_TIME).orElseThrow();
+
+            CompletableFuture.runAsync(() -> cancellation.complete(transactionTemplate.execute(inner -> {
+                orderRepository.lockByOrderNumber(ORDER_NUMBER, ANY_TIME).orElseThrow();
+                return orderRepository.findByOrderNumber(ORDER_NUMBER).orElseThrow().getStatus();
+            }))).exceptionally(ex -> {
+                cancellation.completeExceptionally(ex);
+                return null;
+            });
+
+            sleep(300);
+            assertThat(cancellation).isNotDone();
+            orderRepository.findByOrderNumber(ORDER_NUMBER).orElseThrow().setStatus(OrderStatus.SHIPPED);
+        });
+
+        // Read after the writer committed: SHIPPED, so applyCancel refuses instead of restoring stock
+        assertThat(cancellation.get(5, TimeUnit.SECONDS)).isEqualTo(OrderStatus.SHIPPED);
+    }
+
+    @Test
+    void lockByOrderNumberIsEmptyForUnknownOrders() {
+        assertThat(transactionTemplate.execute(status ->
+                orderRepository.lockByOrderNumber("ORD-0000000000002", ANY_TIME))).isEmpty();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
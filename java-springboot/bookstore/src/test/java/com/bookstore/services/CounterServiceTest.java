@@ -0,0 +1,28 @@
+package com.bookstore.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CounterServiceTest {
+
+    @Test
+    void outOfStockDeltaCountsBooksThatRunOut() {
+        assertThat(CounterService.outOfStockDelta(3, 0)).isEqualTo(1);
+        assertThat(CounterService.outOfStockDelta(1, 0)).isEqualTo(1);
+    }
+
+    @Test
+    void outOfStockDeltaUncountsBooksThatAreRestocked() {
+        assertThat(CounterService.outOfStockDelta(0, 1)).isEqualTo(-1);
+        assertThat(CounterService.outOfStockDelta(0, 50)).isEqualTo(-1);
+    }
+
+    @Test
+    void outOfStockDeltaIgnoresChangesThatCrossNothing() {
+        assertThat(CounterService.outOfStockDelta(5, 2)).isZero();
+        assertThat(CounterService.outOfStockDelta(2, 5)).isZero();
+        assertThat(CounterService.outOfStockDelta(0, 0)).isZero();
+        assertThat(CounterService.outOfStockDelta(4, 4)).isZero();
+    }
+}
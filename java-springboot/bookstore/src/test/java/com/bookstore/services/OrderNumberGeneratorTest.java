@@ -0,0 +1,71 @@
+package com.bookstore.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderNumberGeneratorTest {
+
+    private final OrderNumberGenerator generator = new OrderNumberGenerator(7);
+
+    @Test
+    void numbersAreFixedWidthCrockfordBase32() {
+        assertThat(generator.next()).matches("ORD-[0-9A-HJKMNP-TV-Z]{13}");
+    }
+
+    @Test
+    void numbersSortInGenerationOrderAndNeverRepeat() {
+        // More than one millisecond's 4096 sequence values, so the sequence rolls over at least once
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            numbers.add(generator.next());
+        }
+
+        assertThat(numbers).isSorted();
+        assertThat(new HashSet<>(numbers)).hasSameSizeAs(numbers);
+    }
+
+    @Test
+    void createdNotBeforeDecodesTheGenerationTimeMinusSlack() {
+        LocalDateTime before = LocalDateTime.now();
+        String number = generator.next();
+        LocalDateTime after = LocalDateTime.now();
+
+        Optional<LocalDateTime> notBefore = OrderNumberGenerator.createdNotBefore(number);
+
+        // Millisecond precision: the decoded time can sit up to 1 ms before the wall clock read
+        assertThat(notBefore).hasValueSatisfying(time -> assertThat(time)
+                .isAfterOrEqualTo(before.minus(Duration.ofMinutes(1)).minus(Duration.ofMillis(1)))
+                .isBeforeOrEqualTo(after.minus(Duration.ofMinutes(1))));
+    }
+
+    @Test
+    void createdNotBeforeIsEmptyForLegacyAndMalformedNumbers() {
+        assertThat(OrderNumberGenerator.createdNotBefore(null)).isEmpty();
+        assertThat(OrderNumberGenerator.createdNotBefore("ORD-1734567890123-4821")).isEmpty();
+        assertThat(OrderNumberGenerator.createdNotBefore("ORD-00000000000U0")).isEmpty();
+        assertThat(OrderNumberGenerator.createdNotBefore("XYZ-0000000000000")).isEmpty();
+    }
+
+    @Test
+    void rejectsNodeIdsOutsideTenBits() {
+        assertThatThrownBy(() -> new OrderNumberGenerator(1024))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void requiresAConfiguredNodeId() {
+        // -1 is the default when ORDER_NUMBER_NODE_ID is unset
+        assertThatThrownBy(() -> new OrderNumberGenerator(-1))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("ORDER_NUMBER_NODE_ID");
+    }
+}
@@ -0,0 +1,94 @@
+package com.bookstore.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RetryExecutorTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RetryExecutor retryExecutor = new RetryExecutor(meterRegistry);
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(retryExecutor, "maxAttempts", 5);
+        ReflectionTestUtils.setField(retryExecutor, "initialBackoff", Duration.ofMillis(20));
+        ReflectionTestUtils.setField(retryExecutor, "maxBackoff", Duration.ofMillis(500));
+        ReflectionTestUtils.setField(retryExecutor, "maxElapsed", Duration.ofSeconds(2));
+    }
+
+    @Test
+    void backoffStaysWithinTheDoublingCeiling() {
+        for (int attempt = 1; attempt <= 5; attempt++) {
+            long ceiling = Duration.ofMillis(20L << (attempt - 1)).toNanos();
+            for (int i = 0; i < 1_000; i++) {
+                assertThat(retryExecutor.backoffNanos(attempt)).isBetween(0L, ceiling);
+            }
+        }
+    }
+
+    @Test
+    void backoffIsCappedAtMaxBackoffForLateAttempts() {
+        long cap = Duration.ofMillis(500).toNanos();
+        // Past the shift limit too, where an unguarded 2^attempt would overflow
+        for (int attempt : new int[]{6, 10, 21, 64, 1_000}) {
+            for (int i = 0; i < 1_000; i++) {
+                assertThat(retryExecutor.backoffNanos(attempt)).isBetween(0L, cap);
+            }
+        }
+    }
+
+    @Test
+    void retriesContentionUntilTheActionSucceeds() {
+        ReflectionTestUtils.setField(retryExecutor, "initialBackoff", Duration.ofMillis(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        String result = retryExecutor.execute("test", () -> {
+            if (calls.incrementAndGet() < 3) {
+                throw new CannotAcquireLockException("lock timeout");
+            }
+            return "done";
+        });
+
+        assertThat(result).isEqualTo("done");
+        assertThat(calls).hasValue(3);
+        assertThat(meterRegistry.counter("bookstore.retry.attempts", "operation", "test",
+                "cause", "CannotAcquireLockException").count()).isEqualTo(2);
+    }
+
+    @Test
+    void rethrowsTheLastContentionFailureOnceAttemptsRunOut() {
+        ReflectionTestUtils.setField(retryExecutor, "initialBackoff", Duration.ofMillis(1));
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryExecutor.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        })).isInstanceOf(OptimisticLockingFailureException.class);
+
+        assertThat(calls).hasValue(5);
+        assertThat(meterRegistry.counter("bookstore.retry.exhausted", "operation", "test",
+                "cause", "OptimisticLockingFailureException").count()).isEqualTo(1);
+    }
+
+    @Test
+    void doesNotRetryOtherFailures() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertThatThrownBy(() -> retryExecutor.execute("test", () -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("Cannot checkout empty cart");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(calls).hasValue(1);
+    }
+}
@@ -0,0 +1,55 @@
+package com.bookstore.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StockLedgerServiceTest {
+
+    @Test
+    void inSequenceReplaysStockAfterFromTheFinalStock() {
+        Map<String, Map<Long, Integer>> deltas = new LinkedHashMap<>();
+        deltas.put("ORD-A", Map.of(1L, -2));
+        deltas.put("ORD-B", Map.of(1L, -1));
+        deltas.put("ORD-C", Map.of(1L, -4));
+
+        // 10 before the batch, 3 after all three orders
+        List<StockLedgerService.Movement> movements = StockLedgerService.inSequence(deltas, Map.of(1L, 3));
+
+        assertThat(movements).containsExactly(
+                new StockLedgerService.Movement(1L, -2, 8, "ORD-A"),
+                new StockLedgerService.Movement(1L, -1, 7, "ORD-B"),
+                new StockLedgerService.Movement(1L, -4, 3, "ORD-C"));
+    }
+
+    @Test
+    void inSequenceTracksEachBookSeparately() {
+        Map<Long, Integer> first = new LinkedHashMap<>();
+        first.put(1L, -1);
+        first.put(2L, -5);
+        Map<String, Map<Long, Integer>> deltas = new LinkedHashMap<>();
+        deltas.put("ORD-A", first);
+        deltas.put("ORD-B", Map.of(2L, -2));
+
+        List<StockLedgerService.Movement> movements = StockLedgerService.inSequence(deltas, Map.of(1L, 0, 2L, 13));
+
+        assertThat(movements).containsExactly(
+                new StockLedgerService.Movement(1L, -1, 0, "ORD-A"),
+                new StockLedgerService.Movement(2L, -5, 15, "ORD-A"),
+                new StockLedgerService.Movement(2L, -2, 13, "ORD-B"));
+    }
+
+    @Test
+    void inSequenceLeavesStockAfterUnknownForBooksWithoutFinalStock() {
+        Map<String, Map<Long, Integer>> deltas = new LinkedHashMap<>();
+        deltas.put("ORD-A", Map.of(9L, -3));
+
+        List<StockLedgerService.Movement> movements = StockLedgerService.inSequence(deltas, Map.of());
+
+        assertThat(movements).containsExactly(new StockLedgerService.Movement(9L, -3, null, "ORD-A"));
+    }
+}